@@ -0,0 +1,98 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectCompiler;
+import com.armoreffects.system.ArmorEffectRegistry;
+import com.armoreffects.system.ReloadPropagator;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArmorEffectCompiler over a generated config, with stand-in items instead of the game's item registry.
+ * Potion, attribute and enchantment entries need a bootstrapped game to resolve, so only damage
+ * entries are generated.
+ * {@link #reload()} goes through ArmorEffectRegistry.loadFromConfig as a config reload does:
+ * compile, table build, snapshot swap and the reload diff handed to ReloadPropagator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConfigLoadBenchmark {
+    private static final String[] EFFECTS = {
+        "damage:fire_protection", "damage:projectile_protection", "damage:fall_protection", "damage:blast_protection"
+    };
+    private static final String[] PIECES = { "helmet", "chestplate", "leggings", "boots" };
+    
+    @Param({"1000", "10000"})
+    public int entries;
+    
+    // Percentage of entries with an unknown item or a malformed effect
+    @Param({"0", "5"})
+    public int badPercent;
+    
+    private List<String> config;
+    // The same config with one entry changed, so every reload publishes a different table
+    private List<String> editedConfig;
+    private boolean edited;
+    private final Map<ResourceLocation, Item> items = new HashMap<>();
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        config = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String itemId = "modpack" + (i / 400) + ":armor_" + (i / 4) + "_" + PIECES[i % 4];
+            items.computeIfAbsent(new ResourceLocation(itemId), id -> StandIns.item());
+            
+            if (i % 100 < badPercent) {
+                config.add(i % 2 == 0 ? "modpack:missing_" + i + "+" + EFFECTS[i % EFFECTS.length] : itemId + "+damage:fire_protection@x");
+            } else {
+                config.add(itemId + "+" + EFFECTS[i % EFFECTS.length]);
+            }
+        }
+        editedConfig = new ArrayList<>(config);
+        // The last entry is always a valid one
+        String last = config.get(config.size() - 1);
+        editedConfig.set(config.size() - 1, last.substring(0, last.indexOf('+')) + "+damage:magic_protection");
+        
+        // The on-disk cache reads the game's item registry
+        ArmorEffectsConfig.cacheCompiledTable = false;
+        
+        // A clean config must compile cleanly, otherwise this would time the error path
+        if (badPercent == 0) {
+            for (ArmorEffectCompiler.Diagnostic diagnostic : compile().getDiagnostics()) {
+                if (diagnostic.getSeverity() == ArmorEffectCompiler.Severity.ERROR) {
+                    throw new IllegalStateException("Generated config has errors: " + diagnostic);
+                }
+            }
+        }
+    }
+    
+    @Benchmark
+    public ArmorEffectCompiler.Result compile() {
+        return ArmorEffectCompiler.compile(config, StandIns.lookup(items));
+    }
+    
+    @Benchmark
+    public int reload() {
+        edited = !edited;
+        ArmorEffectRegistry.loadFromConfig(edited ? editedConfig : config, List.of(), List.of(), StandIns.lookup(items));
+        // Without a server nobody is walked, this only drains what the diff handed over
+        ReloadPropagator.tick(0);
+        return ArmorEffectRegistry.getGeneration();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectMetrics;
+import com.armoreffects.system.ArmorEffectType;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fails when the damage math behind the hurt handlers allocates. Runs the {@link HurtPathBenchmark}
+ * paths in a warmed-up loop, with metrics recording as the handlers do, and compares the thread's
+ * allocated bytes before and after. Wired into ./gradlew check as checkDamageMathAllocation.
+ * The handlers themselves are not run: onLivingHurt, ArmorLoadoutCache.get and
+ * ArmorEntityTracker.isTracked need a live entity and are not covered.
+ */
+public final class DamageMathAllocationCheck {
+    private static final int WARMUP = 200_000;
+    private static final int MEASURED = 1_000_000;
+    
+    private static float sink;
+    
+    private DamageMathAllocationCheck() {
+    }
+    
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not report per-thread allocation");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        
+        ArmorEffectsConfig.enableMetrics = true;
+        HurtPathBenchmark benchmark = new HurtPathBenchmark();
+        benchmark.setup();
+        
+        // Class loading and first calls allocate, they all happen before measuring
+        run(benchmark, WARMUP);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        run(benchmark, MEASURED);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        
+        if (allocated != 0) {
+            throw new IllegalStateException("Damage math allocated " + allocated + " bytes over " + MEASURED + " hits (" + sink + ")");
+        }
+    }
+    
+    private static void run(HurtPathBenchmark benchmark, int iterations) {
+        float total = 0.0f;
+        for (int i = 0; i < iterations; i++) {
+            long start = ArmorEffectMetrics.start();
+            total += benchmark.fullSetMatchingDamage();
+            total += benchmark.fullSetOtherDamage();
+            total += benchmark.unarmoredEntity();
+            total += benchmark.resolveDamageMask();
+            total += benchmark.virtualProtection();
+            total += benchmark.noVirtualEnchantments();
+            ArmorEffectMetrics.countApplication(ArmorEffectType.Category.DAMAGE_REDUCTION);
+            ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.LIVING_HURT, start);
+        }
+        sink += total;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorEffectTable;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.item.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The identity hash table versus a flat array indexed by item registry id, the backend that was dropped.
+ * The armor mix models the hurt and tick paths, which only look up worn armor and mostly hit.
+ * The scan mix models tooltip and search-index generation, which looks up every item and mostly misses.
+ * Every caller holds an Item, so the array pays the item registry's id lookup first. That lookup is a
+ * Reference2IntOpenHashMap in MappedRegistry, modelled here by {@code registryIds}. The *KnownId
+ * variants show the array alone, which no caller can use today.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EffectTableBenchmark {
+    private static final int LOOKUPS = 1024;
+    
+    @Param({"1000", "30000"})
+    public int itemCount;
+    
+    @Param({"200"})
+    public int registeredCount;
+    
+    private ArmorEffectTable hashed;
+    private ArmorEffectBundle[] dense;
+    private Reference2IntOpenHashMap<Item> registryIds;
+    private Item[] armorItems;
+    private int[] armorIds;
+    private Item[] scanItems;
+    private int[] scanIds;
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        ArmorEffectBundle bundle = StandIns.bundle(StandIns.damage("fire_protection"));
+        Random random = new Random(42);
+        
+        Item[] items = new Item[itemCount];
+        ArmorEffectBundle[] byId = new ArmorEffectBundle[itemCount];
+        Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects = new Reference2ObjectOpenHashMap<>();
+        int[] registered = new int[registeredCount];
+        registryIds = new Reference2IntOpenHashMap<>(itemCount);
+        registryIds.defaultReturnValue(-1);
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = StandIns.item();
+            registryIds.put(items[i], i);
+        }
+        for (int i = 0; i < registeredCount; i++) {
+            int id = random.nextInt(itemCount);
+            registered[i] = id;
+            byId[id] = bundle;
+            effects.put(items[id], bundle);
+        }
+        hashed = ArmorEffectTable.hashed(effects);
+        dense = byId;
+        
+        armorItems = new Item[LOOKUPS];
+        armorIds = new int[LOOKUPS];
+        scanItems = new Item[LOOKUPS];
+        scanIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            armorIds[i] = registered[random.nextInt(registeredCount)];
+            armorItems[i] = items[armorIds[i]];
+            scanIds[i] = random.nextInt(itemCount);
+            scanItems[i] = items[scanIds[i]];
+        }
+    }
+    
+    @Benchmark
+    public void hashedArmorLookups(Blackhole blackhole) {
+        for (Item item : armorItems) {
+            blackhole.consume(hashed.get(item));
+        }
+    }
+    
+    @Benchmark
+    public void denseArmorLookups(Blackhole blackhole) {
+        for (Item item : armorItems) {
+            blackhole.consume(get(registryIds.getInt(item)));
+        }
+    }
+    
+    @Benchmark
+    public void denseArmorLookupsKnownId(Blackhole blackhole) {
+        for (int id : armorIds) {
+            blackhole.consume(get(id));
+        }
+    }
+    
+    @Benchmark
+    public void hashedScan(Blackhole blackhole) {
+        for (Item item : scanItems) {
+            blackhole.consume(hashed.get(item));
+        }
+    }
+    
+    @Benchmark
+    public void denseScan(Blackhole blackhole) {
+        for (Item item : scanItems) {
+            blackhole.consume(get(registryIds.getInt(item)));
+        }
+    }
+    
+    @Benchmark
+    public void denseScanKnownId(Blackhole blackhole) {
+        for (int id : scanIds) {
+            blackhole.consume(get(id));
+        }
+    }
+    
+    private ArmorEffectBundle get(int itemId) {
+        ArmorEffectBundle bundle = itemId >= 0 && itemId < dense.length ? dense[itemId] : null;
+        return bundle != null ? bundle : ArmorEffectBundle.EMPTY;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorLoadout;
+import net.minecraft.world.entity.EquipmentSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding a loadout after AttributeArmorHandler.onEquipmentChange dropped it.
+ * The handler itself, ArmorEffectHandler.applyArmorEffects, the loadout cache and the dirty queues
+ * are not run: they need a live entity with a level, equipment and attributes, which the stand-ins
+ * cannot provide without bootstrapping the game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EquipmentChangeBenchmark {
+    private static final EquipmentSlot[] SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    
+    private ArmorEffectBundle[] fullSet;
+    private ArmorEffectBundle[] stackedSet;
+    private ArmorEffectBundle[] unarmored;
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        ArmorEffectBundle fire = StandIns.bundle(StandIns.damage("fire_protection"));
+        ArmorEffectBundle stacked = StandIns.bundle(
+            StandIns.damage("fire_protection"), StandIns.attribute("speed"), StandIns.potion("night_vision", 1));
+        
+        fullSet = new ArmorEffectBundle[] { fire, fire, fire, fire };
+        stackedSet = new ArmorEffectBundle[] { stacked, stacked, stacked, stacked };
+        unarmored = new ArmorEffectBundle[] {
+            ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY
+        };
+    }
+    
+    @Benchmark
+    public ArmorLoadout fullSet() {
+        return ArmorLoadout.resolve(0, SLOTS, fullSet);
+    }
+    
+    @Benchmark
+    public ArmorLoadout stackedEffects() {
+        return ArmorLoadout.resolve(0, SLOTS, stackedSet);
+    }
+    
+    @Benchmark
+    public ArmorLoadout unarmored() {
+        return ArmorLoadout.resolve(0, SLOTS, unarmored);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorLoadout;
+import com.armoreffects.system.DamageTypeMatcher;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.EquipmentSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArmorDamageHandler.onLivingHurt and EnchantmentEventHandler.onLivingHurt after the entity's
+ * loadout has been looked up.
+ * This math must not allocate, {@link DamageMathAllocationCheck} fails the build if it does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HurtPathBenchmark {
+    private static final EquipmentSlot[] SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    
+    private ArmorLoadout fullSet;
+    private ArmorLoadout unarmored;
+    private ArmorLoadout enchanted;
+    private int fireMask;
+    private int fallMask;
+    private DamageSource damageSource;
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        DamageTypeMatcher matcher = DamageTypeMatcher.get();
+        fireMask = matcher.getBit("fire_protection") | matcher.getBit("general_protection");
+        fallMask = matcher.getBit("fall_protection") | matcher.getBit("general_protection");
+        
+        ArmorEffectBundle netherite = StandIns.bundle(StandIns.damage("fire_protection"));
+        fullSet = ArmorLoadout.resolve(0, SLOTS, new ArmorEffectBundle[] { netherite, netherite, netherite, netherite });
+        unarmored = ArmorLoadout.resolve(0, SLOTS, new ArmorEffectBundle[] {
+            ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY, ArmorEffectBundle.EMPTY
+        });
+        
+        // Protection IV on every piece, as in enchantment-heavy combat
+        ArmorEffectBundle protection = StandIns.bundle(StandIns.protection(4));
+        enchanted = ArmorLoadout.resolve(0, SLOTS, new ArmorEffectBundle[] { protection, protection, protection, protection });
+        
+        damageSource = StandIns.damageSource("in_fire");
+        matcher.getMask(damageSource);
+    }
+    
+    @Benchmark
+    public float fullSetMatchingDamage() {
+        return fullSet.getDamageMultiplier(fireMask);
+    }
+    
+    @Benchmark
+    public float fullSetOtherDamage() {
+        return fullSet.getDamageMultiplier(fallMask);
+    }
+    
+    @Benchmark
+    public float unarmoredEntity() {
+        return unarmored.getDamageMultiplier(fireMask);
+    }
+    
+    @Benchmark
+    public int resolveDamageMask() {
+        return DamageTypeMatcher.get().getMask(damageSource);
+    }
+    
+    @Benchmark
+    public float virtualProtection() {
+        return enchanted.getEnchantmentFactor(damageSource);
+    }
+    
+    @Benchmark
+    public int noVirtualEnchantments() {
+        // All an entity without virtual enchantments pays on the enchantment path
+        return unarmored.getVirtualEnchantments().length;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorEffectScheduler;
+import com.armoreffects.system.ArmorEffectType;
+import com.armoreffects.system.ArmorLoadout;
+import net.minecraft.world.entity.EquipmentSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A proxy for one server tick of ArmorEffectHandler.onPlayerTick across every online player:
+ * the phase check and the potion reads of an already resolved loadout.
+ * The handler itself, the refresh budget in ArmorEffectScheduler.runOrDefer, the loadout cache
+ * and PotionArmorEffect.apply are not run, they need live players. Applying a potion is replaced
+ * by a Blackhole.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PotionTickBenchmark {
+    private static final EquipmentSlot[] SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    private static final int INTERVAL = 40;
+    
+    @Param({"20", "80", "200"})
+    public int players;
+    
+    private int[] entityIds;
+    private ArmorLoadout[] loadouts;
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        ArmorEffectBundle nightVision = StandIns.bundle(StandIns.potion("night_vision", 1), StandIns.damage("fire_protection"));
+        ArmorEffectBundle speed = StandIns.bundle(StandIns.attribute("speed"));
+        ArmorLoadout loadout = ArmorLoadout.resolve(0, SLOTS, new ArmorEffectBundle[] { nightVision, speed, speed, speed });
+        
+        entityIds = new int[players];
+        loadouts = new ArmorLoadout[players];
+        for (int i = 0; i < players; i++) {
+            // Entity ids are shared with mobs and items, so players are rarely adjacent
+            entityIds[i] = i * 37 + 11;
+            loadouts[i] = loadout;
+        }
+    }
+    
+    @Benchmark
+    public void serverTick(Blackhole blackhole) {
+        ArmorEffectScheduler.beginTick(32);
+        for (int i = 0; i < players; i++) {
+            if (ArmorEffectScheduler.isDue(entityIds[i], INTERVAL)) {
+                for (ArmorEffectType.PotionArmorEffect potion : loadouts[i].getPotions()) {
+                    blackhole.consume(potion);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
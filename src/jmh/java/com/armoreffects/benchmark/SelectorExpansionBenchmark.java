@@ -0,0 +1,76 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectCompiler;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wildcard selector expansion against a large modpack's worth of items.
+ * Each mod gets per-piece selectors, plus a few that span every mod.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SelectorExpansionBenchmark {
+    private static final String[] PIECES = { "helmet", "chestplate", "leggings", "boots" };
+    private static final int MODS = 200;
+    
+    @Param({"10000", "50000"})
+    public int items;
+    
+    private List<String> config;
+    private ArmorEffectCompiler.ItemLookup lookup;
+    
+    @Setup
+    public void setup() {
+        StandIns.loadDefaultProtectionTypes();
+        Map<ResourceLocation, Item> registry = new HashMap<>(items * 2);
+        for (int i = 0; i < items; i++) {
+            // Roughly a quarter of a modpack's items are armor
+            String path = i % 4 == 0 ? "armor_" + i + "_" + PIECES[(i / 4) % 4] : "block_" + i;
+            registry.put(new ResourceLocation("mod" + (i % MODS), path), StandIns.item());
+        }
+        lookup = StandIns.lookup(registry);
+        
+        config = new ArrayList<>();
+        for (int mod = 0; mod < MODS; mod++) {
+            config.add("mod" + mod + ":*_helmet+damage:projectile_protection");
+            config.add("mod" + mod + ":*_boots+damage:fall_protection");
+        }
+        config.add("*:*_chestplate+damage:blast_protection");
+        // Enchantment entries need the bootstrapped enchantment registry, so only damage entries are used
+        config.add("*:armor_*_leggings+damage:magic_protection");
+        
+        // The cross-mod selectors must expand, otherwise this would time the error path
+        ArmorEffectCompiler.Result result = ArmorEffectCompiler.compile(config, lookup);
+        for (ArmorEffectCompiler.Diagnostic diagnostic : result.getDiagnostics()) {
+            if (diagnostic.getSeverity() == ArmorEffectCompiler.Severity.ERROR || diagnostic.getReason().contains("matched no items")) {
+                throw new IllegalStateException("Selector did not expand: " + diagnostic);
+            }
+        }
+        // Only "*:*_chestplate" reaches a chestplate, the per-mod selectors cover helmets and boots
+        Item chestplate = registry.get(new ResourceLocation("mod8", "armor_8_chestplate"));
+        if (!result.getEffects().containsKey(chestplate)) {
+            throw new IllegalStateException("*:*_chestplate did not reach mod8:armor_8_chestplate");
+        }
+    }
+    
+    @Benchmark
+    public ArmorEffectCompiler.Result expand() {
+        return ArmorEffectCompiler.compile(config, lookup);
+    }
+}
\ No newline at end of file
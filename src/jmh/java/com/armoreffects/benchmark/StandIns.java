@@ -0,0 +1,129 @@
+package com.armoreffects.benchmark;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorEffectCompiler;
+import com.armoreffects.system.ArmorEffectType;
+import com.armoreffects.system.DamageTypeMatcher;
+import net.minecraft.core.Holder;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.damagesource.DamageType;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.enchantment.Enchantment;
+import net.minecraft.world.item.enchantment.ProtectionEnchantment;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Lightweight stand-ins for game objects, so the benchmarks run without bootstrapping Minecraft.
+ */
+final class StandIns {
+    private static final Unsafe UNSAFE;
+    
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private StandIns() {
+    }
+    
+    /**
+     * Same protection types as the default config
+     */
+    static void loadDefaultProtectionTypes() {
+        DamageTypeMatcher.loadFromConfig(List.of(
+            "fire_protection=minecraft:in_fire,minecraft:on_fire,minecraft:lava,minecraft:hot_floor",
+            "projectile_protection=minecraft:arrow,minecraft:trident,#minecraft:is_projectile",
+            "blast_protection=minecraft:explosion,minecraft:player_explosion,minecraft:bad_respawn_point",
+            "fall_protection=minecraft:fall",
+            "magic_protection=minecraft:magic,minecraft:indirect_magic",
+            "general_protection=*"
+        ));
+    }
+    
+    /**
+     * An Item usable as an identity key. The real constructor registers an intrusive
+     * holder in the item registry, which needs the game bootstrapped.
+     */
+    static Item item() {
+        try {
+            return (Item) UNSAFE.allocateInstance(Item.class);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Item lookup over a fixed set of stand-in items, without tags
+     */
+    static ArmorEffectCompiler.ItemLookup lookup(Map<ResourceLocation, Item> items) {
+        return new ArmorEffectCompiler.ItemLookup() {
+            @Override
+            public Item get(ResourceLocation id) {
+                return items.get(id);
+            }
+            
+            @Override
+            public void forEach(BiConsumer<ResourceLocation, Item> action) {
+                items.forEach(action);
+            }
+            
+            @Override
+            public Iterable<Item> tag(ResourceLocation tagId) {
+                return null;
+            }
+        };
+    }
+    
+    static DamageSource damageSource(String name) {
+        return new DamageSource(Holder.direct(new DamageType(name, 0.0f)));
+    }
+    
+    static ArmorEffectBundle bundle(ArmorEffectType... effects) {
+        ArmorEffectBundle.Builder builder = new ArmorEffectBundle.Builder();
+        for (ArmorEffectType effect : effects) {
+            builder.add(effect);
+        }
+        return builder.build();
+    }
+    
+    static ArmorEffectType.DamageReductionArmorEffect damage(String kind) {
+        return new ArmorEffectType.DamageReductionArmorEffect(new ResourceLocation("armoreffects", kind), 1);
+    }
+    
+    static ArmorEffectType.PotionArmorEffect potion(String effect, int level) {
+        return new ArmorEffectType.PotionArmorEffect(new ResourceLocation("minecraft", effect), level);
+    }
+    
+    static ArmorEffectType.AttributeArmorEffect attribute(String attribute) {
+        return new ArmorEffectType.AttributeArmorEffect(new ResourceLocation("armoreffects", attribute), 1);
+    }
+    
+    /**
+     * A virtual Protection enchantment. Resolving it would need the enchantment registry,
+     * so the looked-up instance is set directly.
+     */
+    static ArmorEffectType.EnchantmentArmorEffect protection(int level) {
+        ArmorEffectType.EnchantmentArmorEffect effect = new ArmorEffectType.EnchantmentArmorEffect(new ResourceLocation("minecraft", "protection"), level);
+        try {
+            Field field = ArmorEffectType.EnchantmentArmorEffect.class.getDeclaredField("enchantment");
+            field.setAccessible(true);
+            field.set(effect, new ProtectionEnchantment(Enchantment.Rarity.COMMON, ProtectionEnchantment.Type.ALL,
+                EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return effect;
+    }
+}
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.armoreffects;
 
 import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.network.ArmorEffectsNetwork;
+import com.armoreffects.system.ArmorEffectMetrics;
 import com.mojang.logging.LogUtils;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TagsUpdatedEvent;
 import net.minecraftforge.event.server.ServerStartingEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -29,6 +32,7 @@ public class ArmorEffectsModule {
         modEventBus.addListener(this::configChanged);
         
         MinecraftForge.EVENT_BUS.register(this);
+        ArmorEffectsNetwork.register();
         
         context.registerConfig(ModConfig.Type.COMMON, ArmorEffectsConfig.SPEC);
     }
@@ -40,17 +44,37 @@ public class ArmorEffectsModule {
 
     @SubscribeEvent
     public void configChanged(final ModConfigEvent event) {
+        if (event instanceof ModConfigEvent.Unloading) return;
+        
+        // Refreshed here rather than in a listener of its own, whose order against this one is not defined
+        ArmorEffectsConfig.bake();
         staticEnabled = true;
         loadItemEffectsFromConfig();
     }
     
     private void loadItemEffectsFromConfig() {
+        long start = ArmorEffectMetrics.start();
+        
+        // Protection types first, damage reduction effects resolve their kind against them
+        List<String> protectionEntries = ArmorEffectsConfig.protectionTypes;
+        com.armoreffects.system.DamageTypeMatcher.loadFromConfig(protectionEntries != null ? protectionEntries : List.of());
+        
         List<String> configEntries = ArmorEffectsConfig.itemEffects;
         if (configEntries == null) {
             LOGGER.warn("Config not loaded yet, using default effects");
             configEntries = List.of();
         }
-        com.armoreffects.system.ArmorEffectRegistry.loadFromConfig(configEntries);
+        com.armoreffects.system.ArmorEffectRegistry.loadFromConfig(configEntries, ArmorEffectsConfig.armorSets, ArmorEffectsConfig.setBonuses);
+        // Reloads run on the config watcher thread, during mod loading or on the client thread
+        ArmorEffectMetrics.stopFromAnyThread(ArmorEffectMetrics.Timer.CONFIG_RELOAD, start);
+    }
+    
+    @SubscribeEvent
+    public void onTagsUpdated(TagsUpdatedEvent event) {
+        // Tag selectors are expanded at load, before datapacks have bound any tags
+        if (event.shouldUpdateStaticData() && com.armoreffects.system.ArmorEffectRegistry.hasTagSelectors()) {
+            loadItemEffectsFromConfig();
+        }
     }
 
 
@@ -1,12 +1,10 @@
 package com.armoreffects.config;
 
 import net.minecraftforge.common.ForgeConfigSpec;
-import net.minecraftforge.eventbus.api.SubscribeEvent;
-import net.minecraftforge.fml.common.Mod;
-import net.minecraftforge.fml.event.config.ModConfigEvent;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-@Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.MOD)
 public class ArmorEffectsConfig {
 
     private static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
@@ -21,12 +19,27 @@ public class ArmorEffectsConfig {
     public static final ForgeConfigSpec.BooleanValue ENABLE_GOLD_EFFECTS;
     public static final ForgeConfigSpec.BooleanValue ENABLE_DIAMOND_EFFECTS;
     public static final ForgeConfigSpec.BooleanValue ENABLE_NETHERITE_EFFECTS;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> DISABLED_MATERIALS;
     
     public static final ForgeConfigSpec.BooleanValue ENABLE_ARMOR_EFFECTS;
     public static final ForgeConfigSpec.BooleanValue DISPLAY_ENCHANTMENTS_IN_TOOLTIP;
     public static final ForgeConfigSpec.BooleanValue ITALIC_TOOLTIP;
+    public static final ForgeConfigSpec.BooleanValue CACHE_COMPILED_TABLE;
+    
+    public static final ForgeConfigSpec.IntValue POTION_REFRESH_INTERVAL;
+    public static final ForgeConfigSpec.IntValue MAX_POTION_REFRESHES_PER_TICK;
+    public static final ForgeConfigSpec.IntValue MAX_TRACKED_ENTITIES;
+    public static final ForgeConfigSpec.EnumValue<PotionMode> POTION_MODE;
+    public static final ForgeConfigSpec.IntValue POTION_SWEEP_INTERVAL;
+    public static final ForgeConfigSpec.IntValue MAX_RELOAD_UPDATES_PER_TICK;
+    
+    public static final ForgeConfigSpec.BooleanValue ENABLE_METRICS;
+    public static final ForgeConfigSpec.IntValue METRICS_DUMP_INTERVAL;
     
     public static final ForgeConfigSpec.ConfigValue<List<? extends String>> ITEM_EFFECTS;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> PROTECTION_TYPES;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> ARMOR_SETS;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> SET_BONUSES;
 
     static {
         BUILDER.comment("Armor Effects Configuration");
@@ -56,25 +69,29 @@ public class ArmorEffectsConfig {
                .push("material_effects");
                
         ENABLE_LEATHER_EFFECTS = BUILDER
-                .comment("Enable fall damage reduction for leather armor")
+                .comment("Enable effects on leather armor, when disabled its entries are left out of the effect table")
                 .define("enable_leather_effects", true);
                 
         ENABLE_IRON_EFFECTS = BUILDER
-                .comment("Enable projectile protection for iron armor")
+                .comment("Enable effects on iron armor, when disabled its entries are left out of the effect table")
                 .define("enable_iron_effects", true);
                 
         ENABLE_GOLD_EFFECTS = BUILDER
-                .comment("Enable speed effect for gold armor")
+                .comment("Enable effects on gold armor, when disabled its entries are left out of the effect table")
                 .define("enable_gold_effects", true);
                 
         ENABLE_DIAMOND_EFFECTS = BUILDER
-                .comment("Enable blast protection for diamond armor")
+                .comment("Enable effects on diamond armor, when disabled its entries are left out of the effect table")
                 .define("enable_diamond_effects", true);
                 
         ENABLE_NETHERITE_EFFECTS = BUILDER
-                .comment("Enable fire protection for netherite armor")
+                .comment("Enable effects on netherite armor, when disabled its entries are left out of the effect table")
                 .define("enable_netherite_effects", true);
                 
+        DISABLED_MATERIALS = BUILDER
+                .comment("Other armor materials to disable, by material name (e.g. \"chainmail\", \"turtle\" or \"mymod:mythril\")")
+                .defineList("disabled_materials", List.of(), entry -> entry instanceof String);
+                
         BUILDER.pop();
         
         BUILDER.comment("General Settings")
@@ -92,6 +109,62 @@ public class ArmorEffectsConfig {
                 .comment("Display built-in enchantments in italic text")
                 .define("italic_tooltip", true);
                 
+        CACHE_COMPILED_TABLE = BUILDER
+                .comment("Keep the compiled item effect table in cache/armoreffects_table.bin and load it directly")
+                .comment("on the next start while the config and the installed mods are unchanged")
+                .define("cache_compiled_table", true);
+                
+        BUILDER.pop();
+        
+        BUILDER.comment("Potion Effect Scheduling")
+               .push("potion_scheduling");
+               
+        POTION_REFRESH_INTERVAL = BUILDER
+                .comment("Ticks between potion effect refreshes for each player (default: 40 = 2 seconds)")
+                .comment("Players are spread evenly across this window so refreshes do not all land on the same tick")
+                .defineInRange("refresh_interval", 40, 1, 1200);
+                
+        MAX_POTION_REFRESHES_PER_TICK = BUILDER
+                .comment("Maximum number of players whose potion effects are refreshed in a single tick (0 = unlimited)")
+                .comment("Players over the budget are deferred to the following tick")
+                .defineInRange("max_refreshes_per_tick", 32, 0, 10000);
+                
+        MAX_TRACKED_ENTITIES = BUILDER
+                .comment("Maximum number of non-player entities (mobs, armor stands) that get armor effects (0 = players only)")
+                .comment("Entities are tracked once they equip armor that has effects, unarmored mobs cost nothing")
+                .defineInRange("max_tracked_entities", 1024, 0, 100000);
+                
+        POTION_MODE = BUILDER
+                .comment("How armor potion effects are kept on the wearer")
+                .comment("REFRESH: re-applied with a short duration every refresh_interval ticks (default)")
+                .comment("EVENT: granted with infinite duration when armor is equipped and removed when it is taken off,")
+                .comment("       wearers whose armor does not change cost nothing per tick")
+                .defineEnum("potion_mode", PotionMode.REFRESH);
+                
+        POTION_SWEEP_INTERVAL = BUILDER
+                .comment("Ticks between checks of each wearer's granted potion effects in EVENT mode (default: 1200 = 1 minute)")
+                .comment("A safety net for changes no event reported, e.g. effects removed by a command")
+                .defineInRange("sweep_interval", 1200, 20, 72000);
+                
+        MAX_RELOAD_UPDATES_PER_TICK = BUILDER
+                .comment("Maximum number of entities whose attribute and potion effects are re-applied per tick after a config reload (0 = unlimited)")
+                .comment("Only entities wearing an item whose effects changed are updated, the rest follow over the next ticks")
+                .defineInRange("max_reload_updates_per_tick", 16, 0, 10000);
+                
+        BUILDER.pop();
+        
+        BUILDER.comment("Performance Metrics")
+               .push("metrics");
+               
+        ENABLE_METRICS = BUILDER
+                .comment("Record handler timings and effect counters, shown with /armoreffects stats")
+                .comment("Costs one boolean check per event when disabled")
+                .define("enable_metrics", false);
+                
+        METRICS_DUMP_INTERVAL = BUILDER
+                .comment("Seconds between metric dumps to the log and logs/armoreffects-metrics.csv (0 = never)")
+                .defineInRange("dump_interval", 300, 0, 86400);
+                
         BUILDER.pop();
         
         BUILDER.comment("Item-Specific Effects")
@@ -104,6 +177,7 @@ public class ArmorEffectsConfig {
                .comment("  \"minecraft:golden_chestplate+attribute:speed\" - Uses slot percentage")
                .comment("  \"minecraft:netherite_boots+enchant:minecraft:fire_protection@4\" - Fire Protection IV")
                .comment("Note: @level only affects potion and enchantment categories")
+               .comment("List an item on several lines to give it several effects")
                .comment("Available attributes: speed, attack_damage, attack_speed, armor, armor_toughness, knockback_resistance, max_health")
                .push("item_effects");
         
@@ -112,6 +186,9 @@ public class ArmorEffectsConfig {
                 .comment("Helmet/Boots: 12% effect (3 ingots x 3 = 9 + 3 base = 12)")
                 .comment("Chestplate: 18% effect (8 ingots x 3 = 24, but capped at 18)")
                 .comment("Leggings: 15% effect (7 ingots x 3 = 21, but capped at 15)")
+                .comment("Instead of an item id an entry can start with a tag (#forge:armors/helmets),")
+                .comment("a wildcard id (modid:*_helmet) or an armor material (material=iron).")
+                .comment("Entries naming an item directly take precedence over these selectors.")
                 .defineList("items", 
                     List.of(
                         // Leather Armor - Feather Falling (Fall Damage Reduction)
@@ -153,9 +230,56 @@ public class ArmorEffectsConfig {
                 );
                 
         BUILDER.pop();
+        
+        BUILDER.comment("Damage Protection Types")
+               .comment("Format: \"protection_id=selector,selector\"")
+               .comment("Selectors: a damage type id (minecraft:lava), a damage type tag (#minecraft:is_fire) or * for all damage")
+               .comment("Used by \"damage:<protection_id>\" item effects, modded damage types and tags are supported")
+               .push("damage_protection");
+        
+        PROTECTION_TYPES = BUILDER
+                .comment("Which damage types each protection type reduces")
+                .defineList("protection_types",
+                    List.of(
+                        "fire_protection=minecraft:in_fire,minecraft:on_fire,minecraft:lava,minecraft:hot_floor",
+                        "projectile_protection=minecraft:arrow,minecraft:trident,#minecraft:is_projectile",
+                        "blast_protection=minecraft:explosion,minecraft:player_explosion,minecraft:bad_respawn_point",
+                        "fall_protection=minecraft:fall",
+                        "magic_protection=minecraft:magic,minecraft:indirect_magic",
+                        "general_protection=*"
+                    ),
+                    entry -> entry instanceof String
+                );
+                
+        BUILDER.pop();
+        
+        BUILDER.comment("Armor Set Bonuses")
+               .comment("Sets: \"set_name=namespace:item,namespace:item,...\"")
+               .comment("Bonuses: \"set_name@pieces+category:effect_id@level\", active while at least that many pieces of the set are worn")
+               .comment("For set bonuses, @level is the percentage of attribute and damage effects")
+               .comment("Examples:")
+               .comment("  \"netherite=minecraft:netherite_helmet,minecraft:netherite_chestplate,minecraft:netherite_leggings,minecraft:netherite_boots\"")
+               .comment("  \"netherite@4+potion:minecraft:fire_resistance\" - Fire Resistance with the full set")
+               .comment("  \"netherite@2+attribute:speed@10\" - +10% speed with 2 of 4 pieces")
+               .push("set_bonuses");
+        
+        ARMOR_SETS = BUILDER
+                .comment("Armor sets and the items that belong to them, an item may belong to several sets")
+                .defineList("sets", List.of(), entry -> entry instanceof String);
+                
+        SET_BONUSES = BUILDER
+                .comment("Bonuses granted by wearing pieces of a set")
+                .defineList("bonuses", List.of(), entry -> entry instanceof String);
+                
+        BUILDER.pop();
     }
 
     public static final ForgeConfigSpec SPEC = BUILDER.build();
+    
+    public enum PotionMode {
+        REFRESH,
+        EVENT
+    }
 
     public static int helmetEffectPercentage;
     public static int chestplateEffectPercentage;
@@ -166,13 +290,30 @@ public class ArmorEffectsConfig {
     public static boolean enableGoldEffects;
     public static boolean enableDiamondEffects;
     public static boolean enableNetheriteEffects;
+    // Names of every armor material whose effects are disabled, from the flags and the list
+    public static Set<String> disabledMaterials = Set.of();
     public static boolean enableArmorEffects;
     public static boolean displayEnchantmentsInTooltip;
     public static boolean italicTooltip;
+    public static boolean cacheCompiledTable = true;
+    public static int potionRefreshInterval = 40;
+    public static int maxPotionRefreshesPerTick = 32;
+    public static int maxTrackedEntities = 1024;
+    public static PotionMode potionMode = PotionMode.REFRESH;
+    public static int potionSweepInterval = 1200;
+    public static int maxReloadUpdatesPerTick = 16;
+    public static boolean enableMetrics;
+    public static int metricsDumpInterval = 300;
     public static List<String> itemEffects;
+    public static List<String> protectionTypes;
+    public static List<String> armorSets = List.of();
+    public static List<String> setBonuses = List.of();
 
-    @SubscribeEvent
-    static void onLoad(final ModConfigEvent event) {
+    /**
+     * Copy the spec values into the static fields. Called by the mod before it rebuilds the
+     * effect table, so a reload always compiles against the values it just read.
+     */
+    public static void bake() {
         helmetEffectPercentage = HELMET_EFFECT_PERCENTAGE.get();
         chestplateEffectPercentage = CHESTPLATE_EFFECT_PERCENTAGE.get();
         leggingsEffectPercentage = LEGGINGS_EFFECT_PERCENTAGE.get();
@@ -182,9 +323,37 @@ public class ArmorEffectsConfig {
         enableGoldEffects = ENABLE_GOLD_EFFECTS.get();
         enableDiamondEffects = ENABLE_DIAMOND_EFFECTS.get();
         enableNetheriteEffects = ENABLE_NETHERITE_EFFECTS.get();
+        disabledMaterials = collectDisabledMaterials();
         enableArmorEffects = ENABLE_ARMOR_EFFECTS.get();
         displayEnchantmentsInTooltip = DISPLAY_ENCHANTMENTS_IN_TOOLTIP.get();
         italicTooltip = ITALIC_TOOLTIP.get();
+        cacheCompiledTable = CACHE_COMPILED_TABLE.get();
+        potionRefreshInterval = POTION_REFRESH_INTERVAL.get();
+        maxPotionRefreshesPerTick = MAX_POTION_REFRESHES_PER_TICK.get();
+        maxTrackedEntities = MAX_TRACKED_ENTITIES.get();
+        potionMode = POTION_MODE.get();
+        potionSweepInterval = POTION_SWEEP_INTERVAL.get();
+        maxReloadUpdatesPerTick = MAX_RELOAD_UPDATES_PER_TICK.get();
+        enableMetrics = ENABLE_METRICS.get();
+        metricsDumpInterval = METRICS_DUMP_INTERVAL.get();
         itemEffects = ITEM_EFFECTS.get().stream().map(String::valueOf).toList();
+        protectionTypes = PROTECTION_TYPES.get().stream().map(String::valueOf).toList();
+        armorSets = ARMOR_SETS.get().stream().map(String::valueOf).toList();
+        setBonuses = SET_BONUSES.get().stream().map(String::valueOf).toList();
+    }
+    
+    private static Set<String> collectDisabledMaterials() {
+        Set<String> disabled = new HashSet<>();
+        // Names as returned by ArmorMaterials.getName()
+        if (!enableLeatherEffects) disabled.add("leather");
+        if (!enableIronEffects) disabled.add("iron");
+        if (!enableGoldEffects) disabled.add("gold");
+        if (!enableDiamondEffects) disabled.add("diamond");
+        if (!enableNetheriteEffects) disabled.add("netherite");
+        for (Object material : DISABLED_MATERIALS.get()) {
+            String name = String.valueOf(material).trim();
+            if (!name.isEmpty()) disabled.add(name);
+        }
+        return Set.copyOf(disabled);
     }
 }
\ No newline at end of file
@@ -2,16 +2,18 @@ package com.armoreffects.events;
 
 import com.armoreffects.ArmorEffectsModule;
 import com.armoreffects.config.ArmorEffectsConfig;
-import com.armoreffects.system.ArmorEffectContext;
-import com.armoreffects.system.ArmorEffectRegistry;
+import com.armoreffects.system.ArmorEffectMetrics;
 import com.armoreffects.system.ArmorEffectType;
+import com.armoreffects.system.ArmorEntityTracker;
+import com.armoreffects.system.ArmorLoadout;
+import com.armoreffects.system.ArmorLoadoutCache;
+import com.armoreffects.system.DamageTypeMatcher;
 import net.minecraft.world.damagesource.DamageSource;
-import net.minecraft.world.entity.EquipmentSlot;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.item.ArmorItem;
-import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.event.TagsUpdatedEvent;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
@@ -22,46 +24,40 @@ public class ArmorDamageHandler {
     public static void onLivingHurt(LivingHurtEvent event) {
         if (!ArmorEffectsConfig.enableArmorEffects) return;
         
+        long start = ArmorEffectMetrics.start();
         LivingEntity entity = event.getEntity();
         DamageSource damageSource = event.getSource();
-        float originalDamage = event.getAmount();
         
-        float damageReduction = calculateDamageReduction(entity, damageSource, originalDamage);
-        
-        if (damageReduction > 0) {
-            float reducedDamage = originalDamage * (1.0f - damageReduction);
-            event.setAmount(reducedDamage);
+        float multiplier = getDamageMultiplier(entity, damageSource);
+        if (multiplier < 1.0f) {
+            event.setAmount(event.getAmount() * multiplier);
+            ArmorEffectMetrics.countApplication(ArmorEffectType.Category.DAMAGE_REDUCTION);
         }
+        ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.LIVING_HURT, start);
     }
     
-    private static float calculateDamageReduction(LivingEntity entity, DamageSource damageSource, float originalDamage) {
-        float totalReduction = 0.0f;
-        
-        // Only apply to players for now (can be extended to all LivingEntity later)
-        if (!(entity instanceof Player player)) return 0.0f;
-        
-        // Check each armor piece
-        for (EquipmentSlot slot : EquipmentSlot.values()) {
-            if (slot.getType() != EquipmentSlot.Type.ARMOR) continue;
-            
-            ItemStack armorPiece = player.getItemBySlot(slot);
-            if (armorPiece.isEmpty() || !(armorPiece.getItem() instanceof ArmorItem)) {
-                continue;
-            }
-            
-            ArmorEffectType effect = ArmorEffectRegistry.getEffect(armorPiece.getItem());
-            if (effect == null || effect.getCategory() != ArmorEffectType.Category.DAMAGE_REDUCTION) {
-                continue;
-            }
-            
-            ArmorEffectType.DamageReductionArmorEffect damageEffect = (ArmorEffectType.DamageReductionArmorEffect) effect;
-            
-            if (damageEffect.appliesTo(damageSource)) {
-                totalReduction += damageEffect.getReductionAmount();
-            }
+    @SubscribeEvent
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        // Damage type tag membership may have changed
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            DamageTypeMatcher.get().invalidate();
         }
+    }
+    
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        // Damage types belong to the world's registries
+        DamageTypeMatcher.get().invalidate();
+    }
+    
+    private static float getDamageMultiplier(LivingEntity entity, DamageSource damageSource) {
+        // Mobs only count once they wear something with effects, unarmored mobs stop here
+        if (!(entity instanceof Player) && !ArmorEntityTracker.isTracked(entity)) return 1.0f;
+        
+        ArmorLoadout loadout = ArmorLoadoutCache.get(entity);
+        if (loadout.getProtectionMask() == 0) return 1.0f;
         
-        // Cap at 80% damage reduction
-        return Math.min(totalReduction, 0.8f);
+        // Per-kind factors are computed on equipment change, a hit is one lookup and one multiply
+        return loadout.getDamageMultiplier(DamageTypeMatcher.get().getMask(damageSource));
     }
 }
\ No newline at end of file
@@ -2,23 +2,85 @@ package com.armoreffects.events;
 
 import com.armoreffects.ArmorEffectsModule;
 import com.armoreffects.config.ArmorEffectsConfig;
-import com.armoreffects.system.ArmorEffectContext;
-import com.armoreffects.system.ArmorEffectRegistry;
+import com.armoreffects.system.ArmorEffectMetrics;
+import com.armoreffects.system.ArmorEffectScheduler;
 import com.armoreffects.system.ArmorEffectType;
-import net.minecraft.world.entity.EquipmentSlot;
+import com.armoreffects.system.ArmorEntityTracker;
+import com.armoreffects.system.ArmorLoadoutCache;
+import com.armoreffects.system.PotionGrants;
+import com.armoreffects.system.ReloadPropagator;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.item.ArmorItem;
-import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
 @Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE)
 public class ArmorEffectHandler {
     
-    private static int tickCounter = 0;
-    private static final int EFFECT_CHECK_INTERVAL = 40; // Check every 2 seconds (40 ticks)
-    private static final int EFFECT_DURATION = 60; // 3 seconds duration
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            // Equipment changes and respawns of this tick settle into one pass per entity
+            PotionGrants.reconcileDirty();
+            return;
+        }
+        
+        ArmorEffectScheduler.beginTick(ArmorEffectsConfig.maxPotionRefreshesPerTick);
+        
+        if (PotionGrants.checkModeChanged()) {
+            markAllDirty();
+        }
+        if (!ArmorEffectsConfig.enableArmorEffects) return;
+        
+        // Entities wearing items the last reload changed, a few per tick.
+        // Reloads while disabled wait here, re-enabling passes over every wearer anyway
+        ReloadPropagator.tick(ArmorEffectsConfig.maxReloadUpdatesPerTick);
+        
+        // Players pushed out of the previous tick's budget go first
+        ArmorEffectScheduler.drainDeferred(ArmorEffectHandler::applyArmorEffects);
+        
+        // Armored mobs are not ticked through an event, only the ones due this tick are visited
+        ArmorEntityTracker.forEachDue(getInterval(), ArmorEffectHandler::refreshTracked);
+    }
+    
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        // Grants are saved with the player and may no longer match the armor or the config
+        markDirty(event.getEntity());
+    }
+    
+    @SubscribeEvent
+    public static void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        markDirty(event.getEntity());
+    }
+    
+    @SubscribeEvent
+    public static void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        markDirty(event.getEntity());
+    }
+    
+    @SubscribeEvent
+    public static void onLivingDeath(LivingDeathEvent event) {
+        LivingEntity entity = event.getEntity();
+        if (!entity.level().isClientSide && PotionGrants.hasGrants(entity)) {
+            PotionGrants.revokeAll(entity);
+        }
+    }
+    
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        ArmorEffectScheduler.clear();
+        ArmorEntityTracker.clear();
+        ArmorLoadoutCache.clear();
+        PotionGrants.clear();
+        ReloadPropagator.clear();
+    }
     
     @SubscribeEvent
     public static void onPlayerTick(TickEvent.PlayerTickEvent event) {
@@ -29,32 +91,48 @@ public class ArmorEffectHandler {
         if (!ArmorEffectsConfig.enableArmorEffects) return;
         
         Player player = event.player;
+        long start = ArmorEffectMetrics.start();
+        
+        // Each player refreshes on its own phase of the interval to spread the work,
+        // in event mode this is only the integrity sweep
+        if (ArmorEffectScheduler.isDue(player, getInterval())) {
+            ArmorEffectScheduler.runOrDefer(player, ArmorEffectHandler::applyArmorEffects);
+        }
+        ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.PLAYER_TICK, start);
+    }
+    
+    private static void refreshTracked(LivingEntity entity) {
+        ArmorEffectScheduler.runOrDefer(entity, ArmorEffectHandler::applyArmorEffects);
+    }
+    
+    private static void markDirty(Player player) {
+        // Outside event mode only players still holding grants from before a mode switch need a pass
+        if (!player.level().isClientSide && (PotionGrants.isEventMode() || PotionGrants.hasGrants(player))) {
+            PotionGrants.markDirty(player);
+        }
+    }
+    
+    private static void markAllDirty() {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server != null) {
+            server.getPlayerList().getPlayers().forEach(PotionGrants::markDirty);
+        }
+        ArmorEntityTracker.forEach(PotionGrants::markDirty);
+    }
+    
+    private static int getInterval() {
+        return PotionGrants.isEventMode() ? ArmorEffectsConfig.potionSweepInterval : ArmorEffectsConfig.potionRefreshInterval;
+    }
+    
+    private static void applyArmorEffects(LivingEntity entity) {
+        if (PotionGrants.isEventMode()) {
+            PotionGrants.reconcile(entity);
+            return;
+        }
         
-        // Only check armor effects every 2 seconds to reduce performance impact
-        if (tickCounter++ >= EFFECT_CHECK_INTERVAL) {
-            tickCounter = 0;
-            applyArmorEffects(player);
-        }
-    }
-    
-    private static void applyArmorEffects(Player player) {
-        // Check each armor piece for potion effects
-        for (EquipmentSlot slot : EquipmentSlot.values()) {
-            if (slot.getType() != EquipmentSlot.Type.ARMOR) continue;
-            
-            ItemStack armorPiece = player.getItemBySlot(slot);
-            if (armorPiece.isEmpty() || !(armorPiece.getItem() instanceof ArmorItem)) {
-                continue;
-            }
-            
-            ArmorEffectType effect = ArmorEffectRegistry.getEffect(armorPiece.getItem());
-            if (effect == null || effect.getCategory() != ArmorEffectType.Category.POTION) {
-                continue;
-            }
-            
-            // Apply the potion effect
-            ArmorEffectContext context = new ArmorEffectContext(player, armorPiece, slot);
-            effect.applyEffect(context);
+        // Potions only need the wearer, so no context is built per piece
+        for (ArmorEffectType.PotionArmorEffect potion : ArmorLoadoutCache.get(entity).getPotions()) {
+            potion.apply(entity);
         }
     }
 }
\ No newline at end of file
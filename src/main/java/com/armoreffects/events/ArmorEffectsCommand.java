@@ -0,0 +1,94 @@
+package com.armoreffects.events;
+
+import com.armoreffects.ArmorEffectsModule;
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectCompiler;
+import com.armoreffects.system.ArmorEffectMetrics;
+import com.armoreffects.system.ArmorEffectRegistry;
+import com.armoreffects.system.AttributeReconciler;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+
+@Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class ArmorEffectsCommand {
+    private static final int DIAGNOSTICS_PER_PAGE = 20;
+    
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+    
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal(ArmorEffectsModule.MODID)
+            .requires(source -> source.hasPermission(2))
+            .then(Commands.literal("stats")
+                .executes(context -> showStats(context.getSource()))
+                .then(Commands.literal("reset")
+                    .executes(context -> resetStats(context.getSource()))))
+            .then(Commands.literal("diagnostics")
+                .executes(context -> showDiagnostics(context.getSource(), 1))
+                .then(Commands.argument("page", IntegerArgumentType.integer(1, Integer.MAX_VALUE))
+                    .executes(context -> showDiagnostics(context.getSource(), IntegerArgumentType.getInteger(context, "page")))))
+            .then(Commands.literal("stale")
+                .executes(context -> showStaleModifiers(context.getSource()))));
+    }
+    
+    private static int showStats(CommandSourceStack source) {
+        if (!ArmorEffectsConfig.enableMetrics) {
+            source.sendFailure(Component.literal("Metrics are disabled, set enable_metrics = true under [metrics] in the config"));
+            return 0;
+        }
+        
+        for (String line : ArmorEffectMetrics.report()) {
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return 1;
+    }
+    
+    private static int resetStats(CommandSourceStack source) {
+        ArmorEffectMetrics.reset();
+        source.sendSuccess(() -> Component.literal("Armor effect metrics reset"), true);
+        return 1;
+    }
+    
+    private static int showStaleModifiers(CommandSourceStack source) {
+        long removed = AttributeReconciler.getStaleRemovedCount();
+        long entities = AttributeReconciler.getStaleEntityCount();
+        source.sendSuccess(() -> Component.literal("Removed " + removed + " stale armor modifiers from " + entities + " entities since the server started"), false);
+        return 1;
+    }
+    
+    private static int showDiagnostics(CommandSourceStack source, int page) {
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = ArmorEffectRegistry.getDiagnostics();
+        if (diagnostics.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("No problems in the item effect config"), false);
+            return 1;
+        }
+        
+        int pages = (diagnostics.size() + DIAGNOSTICS_PER_PAGE - 1) / DIAGNOSTICS_PER_PAGE;
+        if (page > pages) {
+            source.sendFailure(Component.literal("There are only " + pages + " pages of diagnostics"));
+            return 0;
+        }
+        
+        long errors = diagnostics.stream().filter(d -> d.getSeverity() == ArmorEffectCompiler.Severity.ERROR).count();
+        source.sendSuccess(() -> Component.literal(errors + " errors and " + (diagnostics.size() - errors) + " warnings in the item effect config, page " + page + " of " + pages), false);
+        int end = Math.min(diagnostics.size(), page * DIAGNOSTICS_PER_PAGE);
+        for (int i = (page - 1) * DIAGNOSTICS_PER_PAGE; i < end; i++) {
+            String line = diagnostics.get(i).toString();
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        if (page < pages) {
+            source.sendSuccess(() -> Component.literal("Run /" + ArmorEffectsModule.MODID + " diagnostics " + (page + 1) + " for the next page"), false);
+        }
+        return 1;
+    }
+}
\ No newline at end of file
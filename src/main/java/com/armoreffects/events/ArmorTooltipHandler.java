@@ -2,21 +2,37 @@ package com.armoreffects.events;
 
 import com.armoreffects.ArmorEffectsModule;
 import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.network.ClientEffectTable;
+import com.armoreffects.system.ArmorEffectBundle;
 import com.armoreffects.system.ArmorEffectRegistry;
 import com.armoreffects.system.ArmorEffectType;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.entity.EquipmentSlot;
 import net.minecraft.world.item.ArmorItem;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
 import net.minecraftforge.event.entity.player.ItemTooltipEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE, value = Dist.CLIENT)
 public class ArmorTooltipHandler {
     
+    // Rendered lines per item, JEI and REI also fill this when building their search index
+    private static final Map<Item, Component[]> TOOLTIP_CACHE = new ConcurrentHashMap<>();
+    private static volatile long cachedGeneration = -1;
+    
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        ClientEffectTable.clear();
+    }
+    
     @SubscribeEvent
     public static void onItemTooltip(ItemTooltipEvent event) {
         if (!ArmorEffectsConfig.displayEnchantmentsInTooltip) {
@@ -28,28 +44,58 @@ public class ArmorTooltipHandler {
             return;
         }
         
-        ArmorEffectType effect = ArmorEffectRegistry.getEffect(stack.getItem());
-        if (effect == null) {
+        // Connected to a server that sent its table, the local config may differ from it
+        ArmorEffectBundle bundle = ClientEffectTable.isActive()
+            ? ClientEffectTable.getEffects(stack.getItem())
+            : ArmorEffectRegistry.getEffects(stack.getItem());
+        if (bundle.isEmpty()) {
             return;
         }
         
-        // Determine equipment slot from armor item
-        EquipmentSlot slot = ((ArmorItem) stack.getItem()).getEquipmentSlot();
-        
-        // Add tooltip based on effect category with percentage
-        String tooltipText = getEffectTooltipText(effect, slot);
-        
-        // Color code based on category
-        ChatFormatting color = switch (effect.getCategory()) {
-            case POTION -> ChatFormatting.BLUE;
-            case DAMAGE_REDUCTION -> ChatFormatting.GREEN;
-            case ENCHANTMENT -> ChatFormatting.AQUA;
-            case ATTRIBUTE -> ChatFormatting.GOLD;
-        };
+        // Rendered once per item, showing a tooltip only adds copies of the cached lines,
+        // other handlers may style or append to the lines they are given
+        for (Component line : getTooltipLines(stack.getItem(), bundle)) {
+            event.getToolTip().add(line.copy());
+        }
+    }
+    
+    private static Component[] getTooltipLines(Item item, ArmorEffectBundle bundle) {
+        // A config reload or a table from the server bumps a generation, which covers changed slot percentages too
+        long generation = ((long) ClientEffectTable.getGeneration() << 32) | (ArmorEffectRegistry.getGeneration() & 0xFFFFFFFFL);
+        if (generation != cachedGeneration) {
+            TOOLTIP_CACHE.clear();
+            cachedGeneration = generation;
+        }
         
-        Component tooltip = Component.literal(tooltipText).withStyle(color);
+        Component[] lines = TOOLTIP_CACHE.get(item);
+        if (lines == null) {
+            lines = renderTooltipLines(bundle, ((ArmorItem) item).getEquipmentSlot());
+            TOOLTIP_CACHE.put(item, lines);
+        }
+        return lines;
+    }
+    
+    private static Component[] renderTooltipLines(ArmorEffectBundle bundle, EquipmentSlot slot) {
+        ArmorEffectType[] effects = bundle.getEffects();
+        Component[] lines = new Component[effects.length];
         
-        event.getToolTip().add(tooltip);
+        // One line per effect, already grouped by category
+        for (int i = 0; i < effects.length; i++) {
+            ArmorEffectType effect = effects[i];
+            // Add tooltip based on effect category with percentage
+            String tooltipText = getEffectTooltipText(effect, slot);
+            
+            // Color code based on category
+            ChatFormatting color = switch (effect.getCategory()) {
+                case POTION -> ChatFormatting.BLUE;
+                case DAMAGE_REDUCTION -> ChatFormatting.GREEN;
+                case ENCHANTMENT -> ChatFormatting.AQUA;
+                case ATTRIBUTE -> ChatFormatting.GOLD;
+            };
+            
+            lines[i] = Component.literal(tooltipText).withStyle(color);
+        }
+        return lines;
     }
     
     private static String getEffectTooltipText(ArmorEffectType effect, EquipmentSlot slot) {
@@ -65,6 +111,9 @@ public class ArmorTooltipHandler {
     }
     
     private static double getSlotMultiplier(EquipmentSlot slot) {
+        if (ClientEffectTable.isActive()) {
+            return ClientEffectTable.getSlotPercentage(slot);
+        }
         return switch (slot) {
             case HEAD -> ArmorEffectsConfig.helmetEffectPercentage;
             case CHEST -> ArmorEffectsConfig.chestplateEffectPercentage;
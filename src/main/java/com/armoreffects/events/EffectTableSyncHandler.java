@@ -0,0 +1,34 @@
+package com.armoreffects.events;
+
+import com.armoreffects.ArmorEffectsModule;
+import com.armoreffects.network.EffectTableSync;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+@Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class EffectTableSyncHandler {
+    
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            EffectTableSync.offer(player);
+        }
+    }
+    
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        // Reloads happen off the server thread, the new table is offered on the next tick
+        if (event.phase == TickEvent.Phase.END) {
+            EffectTableSync.offerIfChanged();
+        }
+    }
+    
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        EffectTableSync.clear();
+    }
+}
\ No newline at end of file
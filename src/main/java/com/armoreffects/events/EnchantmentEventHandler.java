@@ -1,20 +1,68 @@
 package com.armoreffects.events;
 
 import com.armoreffects.ArmorEffectsModule;
-import net.minecraft.core.Holder;
-import net.minecraft.world.item.ItemStack;
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectMetrics;
+import com.armoreffects.system.ArmorEffectType;
+import com.armoreffects.system.ArmorEntityTracker;
+import com.armoreffects.system.ArmorLoadout;
+import com.armoreffects.system.ArmorLoadoutCache;
+import net.minecraft.tags.DamageTypeTags;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.enchantment.Enchantment;
-import net.minecraftforge.event.enchanting.EnchantmentLevelSetEvent;
-import net.minecraftforge.event.entity.living.LivingGetProjectileEvent;
+import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
+/**
+ * Applies config-granted "virtual" enchantments the way vanilla applies armor enchantments
+ * when the wearer is hurt: protection levels against the damage and post-hurt effects such as thorns.
+ * Levels come from the cached loadout, so a hit never reads enchantment NBT.
+ */
 @Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE)
 public class EnchantmentEventHandler {
-
-    // This would require a custom enchantment level getter hook
-    // For now, we'll need to use Mixin or access transformers to hook into EnchantmentHelper
     
-    // Alternative: Use LivingHurtEvent and check for specific damage types
-    // and apply damage reduction based on built-in enchantments
-}
\ No newline at end of file
+    // Thorns and similar effects hurt the attacker through this same event
+    private static boolean inPostHurt = false;
+    
+    @SubscribeEvent
+    public static void onLivingHurt(LivingHurtEvent event) {
+        if (!ArmorEffectsConfig.enableArmorEffects) return;
+        
+        LivingEntity entity = event.getEntity();
+        if (!(entity instanceof Player) && !ArmorEntityTracker.isTracked(entity)) return;
+        
+        ArmorLoadout loadout = ArmorLoadoutCache.get(entity);
+        Enchantment[] enchantments = loadout.getVirtualEnchantments();
+        if (enchantments.length == 0) return;
+        
+        long start = ArmorEffectMetrics.start();
+        DamageSource damageSource = event.getSource();
+        
+        // Same exemptions as vanilla's enchantment protection
+        if (!damageSource.is(DamageTypeTags.BYPASSES_EFFECTS) && !damageSource.is(DamageTypeTags.BYPASSES_ENCHANTMENTS)) {
+            float factor = loadout.getEnchantmentFactor(damageSource);
+            if (factor < 1.0f) {
+                event.setAmount(event.getAmount() * factor);
+                ArmorEffectMetrics.countApplication(ArmorEffectType.Category.ENCHANTMENT);
+            }
+        }
+        
+        Entity attacker = damageSource.getEntity();
+        if (attacker != null && !inPostHurt) {
+            int[] levels = loadout.getVirtualEnchantmentLevels();
+            inPostHurt = true;
+            try {
+                for (int i = 0; i < enchantments.length; i++) {
+                    enchantments[i].doPostHurt(entity, attacker, levels[i]);
+                }
+            } finally {
+                inPostHurt = false;
+            }
+        }
+        ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.ENCHANTMENT_HURT, start);
+    }
+}
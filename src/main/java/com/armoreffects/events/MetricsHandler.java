@@ -0,0 +1,66 @@
+package com.armoreffects.events;
+
+import com.armoreffects.ArmorEffectsModule;
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectMetrics;
+import com.mojang.logging.LogUtils;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Mod.EventBusSubscriber(modid = ArmorEffectsModule.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class MetricsHandler {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String CSV_FILE = "armoreffects-metrics.csv";
+    // The CSV is written off the server thread so a slow disk never stalls a tick
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "armoreffects-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private static int ticksSinceDump = 0;
+    
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        
+        if (!ArmorEffectsConfig.enableMetrics || ArmorEffectsConfig.metricsDumpInterval <= 0) {
+            ticksSinceDump = 0;
+            return;
+        }
+        
+        // 20 ticks per second
+        if (++ticksSinceDump >= ArmorEffectsConfig.metricsDumpInterval * 20) {
+            ticksSinceDump = 0;
+            dump();
+        }
+    }
+    
+    private static void dump() {
+        for (String line : ArmorEffectMetrics.report()) {
+            LOGGER.info("[metrics] {}", line);
+        }
+        
+        // Values are read here, only the file is written on the other thread
+        List<String> rows = ArmorEffectMetrics.csvRows(System.currentTimeMillis());
+        Path file = FMLPaths.GAMEDIR.get().resolve("logs").resolve(CSV_FILE);
+        WRITER.execute(() -> {
+            try {
+                ArmorEffectMetrics.appendCsv(file, rows);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write armor effect metrics to {}", file, e);
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.armoreffects.network;
+
+import com.armoreffects.ArmorEffectsModule;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkRegistry;
+import net.minecraftforge.network.PacketDistributor;
+import net.minecraftforge.network.simple.SimpleChannel;
+
+/**
+ * The mod's network channel.
+ * Either side may lack the mod, such a client keeps using its own config for tooltips.
+ */
+public class ArmorEffectsNetwork {
+    private static final String PROTOCOL_VERSION = "1";
+    
+    public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
+        new ResourceLocation(ArmorEffectsModule.MODID, "main"),
+        () -> PROTOCOL_VERSION,
+        ArmorEffectsNetwork::isCompatible,
+        ArmorEffectsNetwork::isCompatible);
+    
+    public static void register() {
+        int id = 0;
+        CHANNEL.messageBuilder(EffectTableOfferMessage.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(EffectTableOfferMessage::encode)
+            .decoder(EffectTableOfferMessage::decode)
+            .consumerMainThread(EffectTableOfferMessage::handle)
+            .add();
+        CHANNEL.messageBuilder(EffectTableRequestMessage.class, id++, NetworkDirection.PLAY_TO_SERVER)
+            .encoder(EffectTableRequestMessage::encode)
+            .decoder(EffectTableRequestMessage::decode)
+            .consumerMainThread(EffectTableRequestMessage::handle)
+            .add();
+        CHANNEL.messageBuilder(EffectTableMessage.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(EffectTableMessage::encode)
+            .decoder(EffectTableMessage::decode)
+            .consumerMainThread(EffectTableMessage::handle)
+            .add();
+    }
+    
+    public static void sendTo(ServerPlayer player, Object message) {
+        CHANNEL.send(PacketDistributor.PLAYER.with(() -> player), message);
+    }
+    
+    private static boolean isCompatible(String version) {
+        return PROTOCOL_VERSION.equals(version) || NetworkRegistry.ABSENT.equals(version) || NetworkRegistry.ACCEPTVANILLA.equals(version);
+    }
+}
\ No newline at end of file
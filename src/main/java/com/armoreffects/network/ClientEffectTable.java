@@ -0,0 +1,152 @@
+package com.armoreffects.network;
+
+import com.armoreffects.system.ArmorEffectBundle;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.item.Item;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The effect table received from the server, used by tooltips instead of the local config
+ * while connected. Received tables are kept on disk under their content hash, so joining a
+ * server whose config did not change since the last session costs a single small packet.
+ */
+public class ClientEffectTable {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int MAX_CACHED_TABLES = 8;
+    
+    private static volatile Table active;
+    private static volatile int generation = 0;
+    
+    /**
+     * Whether the server sent a table, otherwise the local registry applies
+     */
+    public static boolean isActive() {
+        return active != null;
+    }
+    
+    /**
+     * The item's effects on the server, {@link ArmorEffectBundle#EMPTY} if none or if no table was received
+     */
+    public static ArmorEffectBundle getEffects(Item item) {
+        Table table = active;
+        return table != null ? table.effects.get(item) : ArmorEffectBundle.EMPTY;
+    }
+    
+    /**
+     * The server's effect percentage for an armor slot, 100 outside armor slots or without a table
+     */
+    public static int getSlotPercentage(EquipmentSlot slot) {
+        Table table = active;
+        if (table == null) return 100;
+        return switch (slot) {
+            case HEAD -> table.slotPercentages[0];
+            case CHEST -> table.slotPercentages[1];
+            case LEGS -> table.slotPercentages[2];
+            case FEET -> table.slotPercentages[3];
+            default -> 100;
+        };
+    }
+    
+    /**
+     * Changes whenever a table is applied or dropped, so rendered tooltips can tell they are stale
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+    
+    static void onOffer(long hash) {
+        Table table = active;
+        if (table != null && table.hash == hash) return;
+        
+        Path file = getFile(hash);
+        try {
+            if (Files.isRegularFile(file) && apply(hash, Files.readAllBytes(file))) {
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not read cached armor effect table {}: {}", file, e.toString());
+        }
+        ArmorEffectsNetwork.CHANNEL.sendToServer(new EffectTableRequestMessage(hash));
+    }
+    
+    static void onTable(long hash, byte[] data) {
+        if (apply(hash, data)) {
+            store(hash, data);
+        }
+    }
+    
+    private static boolean apply(long hash, byte[] data) {
+        try {
+            EffectTableSync.Decoded decoded = EffectTableSync.decode(hash, data);
+            active = new Table(hash, decoded);
+            generation++;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring invalid armor effect table from the server: {}", e.toString());
+            return false;
+        }
+    }
+    
+    /**
+     * Keep the table for the next session, dropping the oldest ones beyond the limit
+     */
+    private static void store(long hash, byte[] data) {
+        Path file = getFile(hash);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+            try (Stream<Path> files = Files.list(file.getParent())) {
+                List<Path> cached = files.sorted(Comparator.comparing(ClientEffectTable::lastModified).reversed()).toList();
+                for (int i = MAX_CACHED_TABLES; i < cached.size(); i++) {
+                    Files.deleteIfExists(cached.get(i));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not cache armor effect table {}: {}", file, e.toString());
+        }
+    }
+    
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+    
+    private static Path getFile(long hash) {
+        return FMLPaths.GAMEDIR.get().resolve("cache").resolve("armoreffects_tables").resolve(Long.toHexString(hash) + ".bin");
+    }
+    
+    /**
+     * Forget the server's table, e.g. when leaving the server
+     */
+    public static void clear() {
+        if (active != null) {
+            active = null;
+            generation++;
+        }
+    }
+    
+    private static class Table {
+        private final long hash;
+        private final Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects;
+        private final int[] slotPercentages;
+        
+        private Table(long hash, EffectTableSync.Decoded decoded) {
+            this.hash = hash;
+            this.effects = decoded.effects;
+            this.slotPercentages = decoded.slotPercentages;
+        }
+    }
+}
\ No newline at end of file
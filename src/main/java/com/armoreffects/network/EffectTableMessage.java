@@ -0,0 +1,33 @@
+package com.armoreffects.network;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Server to client: the encoded effect table, see {@link EffectTableSync}
+ */
+public class EffectTableMessage {
+    private final long hash;
+    private final byte[] data;
+    
+    public EffectTableMessage(long hash, byte[] data) {
+        this.hash = hash;
+        this.data = data;
+    }
+    
+    public static void encode(EffectTableMessage message, FriendlyByteBuf buffer) {
+        buffer.writeLong(message.hash);
+        buffer.writeByteArray(message.data);
+    }
+    
+    public static EffectTableMessage decode(FriendlyByteBuf buffer) {
+        return new EffectTableMessage(buffer.readLong(), buffer.readByteArray(EffectTableSync.MAX_PAYLOAD));
+    }
+    
+    public static void handle(EffectTableMessage message, Supplier<NetworkEvent.Context> context) {
+        ClientEffectTable.onTable(message.hash, message.data);
+        context.get().setPacketHandled(true);
+    }
+}
\ No newline at end of file
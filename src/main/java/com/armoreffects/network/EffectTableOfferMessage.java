@@ -0,0 +1,30 @@
+package com.armoreffects.network;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Server to client: the content hash of the server's effect table, sent on login and after a reload
+ */
+public class EffectTableOfferMessage {
+    private final long hash;
+    
+    public EffectTableOfferMessage(long hash) {
+        this.hash = hash;
+    }
+    
+    public static void encode(EffectTableOfferMessage message, FriendlyByteBuf buffer) {
+        buffer.writeLong(message.hash);
+    }
+    
+    public static EffectTableOfferMessage decode(FriendlyByteBuf buffer) {
+        return new EffectTableOfferMessage(buffer.readLong());
+    }
+    
+    public static void handle(EffectTableOfferMessage message, Supplier<NetworkEvent.Context> context) {
+        ClientEffectTable.onOffer(message.hash);
+        context.get().setPacketHandled(true);
+    }
+}
\ No newline at end of file
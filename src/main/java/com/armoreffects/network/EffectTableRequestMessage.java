@@ -0,0 +1,34 @@
+package com.armoreffects.network;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Client to server: the offered table is not cached on the client, send it
+ */
+public class EffectTableRequestMessage {
+    private final long hash;
+    
+    public EffectTableRequestMessage(long hash) {
+        this.hash = hash;
+    }
+    
+    public static void encode(EffectTableRequestMessage message, FriendlyByteBuf buffer) {
+        buffer.writeLong(message.hash);
+    }
+    
+    public static EffectTableRequestMessage decode(FriendlyByteBuf buffer) {
+        return new EffectTableRequestMessage(buffer.readLong());
+    }
+    
+    public static void handle(EffectTableRequestMessage message, Supplier<NetworkEvent.Context> context) {
+        ServerPlayer player = context.get().getSender();
+        if (player != null) {
+            EffectTableSync.onRequest(player, message.hash);
+        }
+        context.get().setPacketHandled(true);
+    }
+}
\ No newline at end of file
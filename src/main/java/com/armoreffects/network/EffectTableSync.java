@@ -0,0 +1,267 @@
+package com.armoreffects.network;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.armoreffects.system.ArmorEffectBundle;
+import com.armoreffects.system.ArmorEffectRegistry;
+import com.armoreffects.system.ArmorEffectType;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import net.minecraftforge.server.ServerLifecycleHooks;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sends the server's compiled effect table to clients, so tooltips show the server's config.
+ * The table is encoded once per config load as varint item ids, category codes and a string
+ * table of effect ids, then deflated. Clients are offered its content hash first and only ask
+ * for the table when they have not kept it from an earlier session.
+ */
+public class EffectTableSync {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    
+    // Client-bound custom payloads are limited to 1 MiB, leave room for the packet header
+    static final int MAX_PAYLOAD = (1 << 20) - 64;
+    // Guards the client against a table that inflates without bound
+    private static final int MAX_DECODED_SIZE = 16 << 20;
+    
+    private static final ArmorEffectType.Category[] CATEGORIES = ArmorEffectType.Category.values();
+    
+    // Server thread only
+    private static Encoded encoded;
+    private static int offeredGeneration = -1;
+    
+    /**
+     * Offer the current table to a player that just joined
+     */
+    public static void offer(ServerPlayer player) {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        // The host of a singleplayer or LAN world reads the same registry as the server
+        if (server == null || server.isSingleplayerOwner(player.getGameProfile())) return;
+        
+        Encoded table = current();
+        if (table != null) {
+            ArmorEffectsNetwork.sendTo(player, new EffectTableOfferMessage(table.hash));
+        }
+    }
+    
+    /**
+     * Offer the table again to everyone online once a reload changed it
+     */
+    public static void offerIfChanged() {
+        int generation = ArmorEffectRegistry.getGeneration();
+        if (generation == offeredGeneration) return;
+        offeredGeneration = generation;
+        
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server != null) {
+            server.getPlayerList().getPlayers().forEach(EffectTableSync::offer);
+        }
+    }
+    
+    static void onRequest(ServerPlayer player, long hash) {
+        Encoded table = current();
+        // A request for an older table is answered by the offer that followed the reload
+        if (table != null && table.hash == hash) {
+            ArmorEffectsNetwork.sendTo(player, new EffectTableMessage(table.hash, table.data));
+        }
+    }
+    
+    /**
+     * The encoded table of the current config load, null if it is too large to send
+     */
+    private static Encoded current() {
+        int generation = ArmorEffectRegistry.getGeneration();
+        if (encoded == null || encoded.generation != generation) {
+            try {
+                encoded = encode(generation);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to encode the armor effect table", e);
+            }
+            if (encoded.data.length > MAX_PAYLOAD) {
+                LOGGER.warn("Armor effect table is {} bytes encoded, too large to send, clients use their own config for tooltips", encoded.data.length);
+            }
+        }
+        return encoded.data.length <= MAX_PAYLOAD ? encoded : null;
+    }
+    
+    private static Encoded encode(int generation) throws IOException {
+        Map<Item, ArmorEffectBundle> effects = ArmorEffectRegistry.getAllEffects();
+        
+        // Effect ids repeat across items, each is written once and referenced by index
+        Map<ResourceLocation, Integer> idIndex = new HashMap<>();
+        List<ResourceLocation> ids = new ArrayList<>();
+        for (ArmorEffectBundle bundle : effects.values()) {
+            for (ArmorEffectType effect : bundle.getEffects()) {
+                if (idIndex.putIfAbsent(effect.getEffectId(), ids.size()) == null) {
+                    ids.add(effect.getEffectId());
+                }
+            }
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // Tooltips scale their percentages by the server's slot percentages
+        writeVarInt(out, ArmorEffectsConfig.helmetEffectPercentage);
+        writeVarInt(out, ArmorEffectsConfig.chestplateEffectPercentage);
+        writeVarInt(out, ArmorEffectsConfig.leggingsEffectPercentage);
+        writeVarInt(out, ArmorEffectsConfig.bootsEffectPercentage);
+        
+        writeVarInt(out, ids.size());
+        for (ResourceLocation id : ids) {
+            byte[] text = id.toString().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, text.length);
+            out.write(text);
+        }
+        
+        writeVarInt(out, effects.size());
+        for (Map.Entry<Item, ArmorEffectBundle> entry : effects.entrySet()) {
+            writeVarInt(out, BuiltInRegistries.ITEM.getId(entry.getKey()));
+            ArmorEffectType[] itemEffects = entry.getValue().getEffects();
+            writeVarInt(out, itemEffects.length);
+            for (ArmorEffectType effect : itemEffects) {
+                out.writeByte(effect.getCategory().ordinal());
+                writeVarInt(out, idIndex.get(effect.getEffectId()));
+                writeVarInt(out, effect.getLevel());
+            }
+        }
+        out.flush();
+        byte[] raw = bytes.toByteArray();
+        
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 16);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(raw);
+        }
+        return new Encoded(generation, hash(raw), compressed.toByteArray());
+    }
+    
+    /**
+     * Decode a received table, checking it against the offered hash
+     */
+    static Decoded decode(long expectedHash, byte[] data) throws IOException {
+        byte[] raw;
+        try (InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            raw = inflater.readNBytes(MAX_DECODED_SIZE + 1);
+        }
+        if (raw.length > MAX_DECODED_SIZE) {
+            throw new IOException("effect table larger than " + MAX_DECODED_SIZE + " bytes");
+        }
+        if (hash(raw) != expectedHash) {
+            throw new IOException("effect table does not match its hash");
+        }
+        
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        int[] slotPercentages = new int[4];
+        for (int i = 0; i < slotPercentages.length; i++) {
+            slotPercentages[i] = readVarInt(in);
+        }
+        
+        ResourceLocation[] ids = new ResourceLocation[readVarInt(in)];
+        for (int i = 0; i < ids.length; i++) {
+            byte[] text = new byte[readVarInt(in)];
+            in.readFully(text);
+            ids[i] = new ResourceLocation(new String(text, StandardCharsets.UTF_8));
+        }
+        
+        int itemCount = readVarInt(in);
+        Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects = new Reference2ObjectOpenHashMap<>(itemCount);
+        effects.defaultReturnValue(ArmorEffectBundle.EMPTY);
+        for (int i = 0; i < itemCount; i++) {
+            Item item = BuiltInRegistries.ITEM.byId(readVarInt(in));
+            ArmorEffectBundle.Builder builder = new ArmorEffectBundle.Builder();
+            int count = readVarInt(in);
+            for (int j = 0; j < count; j++) {
+                ArmorEffectType.Category category = CATEGORIES[in.readUnsignedByte()];
+                ResourceLocation id = ids[readVarInt(in)];
+                int level = readVarInt(in);
+                // Only shown in tooltips, so nothing is resolved against the client's registries
+                builder.add(switch (category) {
+                    case POTION -> new ArmorEffectType.PotionArmorEffect(id, level);
+                    case DAMAGE_REDUCTION -> new ArmorEffectType.DamageReductionArmorEffect(id, level);
+                    case ENCHANTMENT -> new ArmorEffectType.EnchantmentArmorEffect(id, level);
+                    case ATTRIBUTE -> new ArmorEffectType.AttributeArmorEffect(id, level);
+                });
+            }
+            // Items the client does not know read back as air
+            if (item != null && item != Items.AIR) {
+                effects.put(item, builder.build());
+            }
+        }
+        return new Decoded(effects, slotPercentages);
+    }
+    
+    /**
+     * 64-bit FNV-1a of the uncompressed table
+     */
+    private static long hash(byte[] data) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : data) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("varint too long");
+    }
+    
+    public static void clear() {
+        encoded = null;
+        offeredGeneration = -1;
+    }
+    
+    private static class Encoded {
+        private final int generation;
+        private final long hash;
+        private final byte[] data;
+        
+        private Encoded(int generation, long hash, byte[] data) {
+            this.generation = generation;
+            this.hash = hash;
+            this.data = data;
+        }
+    }
+    
+    static class Decoded {
+        final Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects;
+        // Helmet, chestplate, leggings, boots
+        final int[] slotPercentages;
+        
+        private Decoded(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects, int[] slotPercentages) {
+            this.effects = effects;
+            this.slotPercentages = slotPercentages;
+        }
+    }
+}
\ No newline at end of file
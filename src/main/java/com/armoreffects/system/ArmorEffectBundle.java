@@ -0,0 +1,115 @@
+package com.armoreffects.system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * All effects configured for one item, sorted by category.
+ * Handlers read the typed array for the category they need and never filter.
+ */
+public class ArmorEffectBundle {
+    public static final ArmorEffectBundle EMPTY = new Builder().build();
+    
+    private final ArmorEffectType[] effects;
+    private final ArmorEffectType.PotionArmorEffect[] potions;
+    private final ArmorEffectType.DamageReductionArmorEffect[] damageReductions;
+    private final ArmorEffectType.EnchantmentArmorEffect[] enchantments;
+    private final ArmorEffectType.AttributeArmorEffect[] attributes;
+    
+    private ArmorEffectBundle(ArmorEffectType[] effects) {
+        this.effects = effects;
+        List<ArmorEffectType.PotionArmorEffect> potions = new ArrayList<>();
+        List<ArmorEffectType.DamageReductionArmorEffect> damageReductions = new ArrayList<>();
+        List<ArmorEffectType.EnchantmentArmorEffect> enchantments = new ArrayList<>();
+        List<ArmorEffectType.AttributeArmorEffect> attributes = new ArrayList<>();
+        
+        for (ArmorEffectType effect : effects) {
+            if (effect instanceof ArmorEffectType.PotionArmorEffect potion) {
+                potions.add(potion);
+            } else if (effect instanceof ArmorEffectType.DamageReductionArmorEffect damage) {
+                damageReductions.add(damage);
+            } else if (effect instanceof ArmorEffectType.EnchantmentArmorEffect enchantment) {
+                enchantments.add(enchantment);
+            } else if (effect instanceof ArmorEffectType.AttributeArmorEffect attribute) {
+                attributes.add(attribute);
+            }
+        }
+        
+        this.potions = potions.toArray(new ArmorEffectType.PotionArmorEffect[0]);
+        this.damageReductions = damageReductions.toArray(new ArmorEffectType.DamageReductionArmorEffect[0]);
+        this.enchantments = enchantments.toArray(new ArmorEffectType.EnchantmentArmorEffect[0]);
+        this.attributes = attributes.toArray(new ArmorEffectType.AttributeArmorEffect[0]);
+    }
+    
+    /**
+     * Every effect of the item, grouped by category in declaration order of {@link ArmorEffectType.Category}
+     */
+    public ArmorEffectType[] getEffects() {
+        return effects;
+    }
+    
+    public ArmorEffectType.PotionArmorEffect[] getPotions() {
+        return potions;
+    }
+    
+    public ArmorEffectType.DamageReductionArmorEffect[] getDamageReductions() {
+        return damageReductions;
+    }
+    
+    public ArmorEffectType.EnchantmentArmorEffect[] getEnchantments() {
+        return enchantments;
+    }
+    
+    public ArmorEffectType.AttributeArmorEffect[] getAttributes() {
+        return attributes;
+    }
+    
+    public boolean isEmpty() {
+        return effects.length == 0;
+    }
+    
+    public int size() {
+        return effects.length;
+    }
+    
+    public static class Builder {
+        private final List<ArmorEffectType> effects = new ArrayList<>();
+        
+        /**
+         * The effect already added with the same category and id, or null
+         */
+        public ArmorEffectType find(ArmorEffectType effect) {
+            for (ArmorEffectType existing : effects) {
+                if (existing.getCategory() == effect.getCategory() && existing.getEffectId().equals(effect.getEffectId())) {
+                    return existing;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Add an effect, replacing an earlier one of the same category and id.
+         * Returns the replaced effect, or null.
+         */
+        public ArmorEffectType add(ArmorEffectType effect) {
+            for (int i = 0; i < effects.size(); i++) {
+                ArmorEffectType existing = effects.get(i);
+                if (existing.getCategory() == effect.getCategory() && existing.getEffectId().equals(effect.getEffectId())) {
+                    effects.set(i, effect);
+                    return existing;
+                }
+            }
+            effects.add(effect);
+            return null;
+        }
+        
+        public ArmorEffectBundle build() {
+            // Stable sort keeps config order within a category
+            ArmorEffectType[] sorted = effects.stream()
+                .sorted(Comparator.comparing(ArmorEffectType::getCategory))
+                .toArray(ArmorEffectType[]::new);
+            return new ArmorEffectBundle(sorted);
+        }
+    }
+}
\ No newline at end of file
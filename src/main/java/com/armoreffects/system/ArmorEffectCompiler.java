@@ -0,0 +1,583 @@
+package com.armoreffects.system;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.ArmorItem;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-pass compiler for item effect entries.
+ * The item part of an entry is an item id or a selector: an item tag (#forge:armors/helmets),
+ * a glob over item ids (modid:*_helmet) or an armor material (material=iron). Selectors are
+ * expanded here into the same per item table, so lookups cost the same either way.
+ * Entries are scanned by hand without exceptions or logging per entry; every problem
+ * becomes a {@link Diagnostic} and the caller decides how to report them.
+ */
+public class ArmorEffectCompiler {
+    private static final String MATERIAL_SELECTOR = "material=";
+    
+    public enum Severity {
+        // The entry was skipped
+        ERROR,
+        // The entry was loaded but likely does not do what was intended
+        WARNING
+    }
+    
+    /**
+     * Where the compiler finds items; the game's item registry outside of benchmarks
+     */
+    public interface ItemLookup {
+        
+        /**
+         * The item with this id, null if there is none
+         */
+        Item get(ResourceLocation id);
+        
+        /**
+         * Every item with its id, used to expand selectors
+         */
+        void forEach(BiConsumer<ResourceLocation, Item> action);
+        
+        /**
+         * Members of an item tag, null while tags are not loaded yet
+         */
+        Iterable<Item> tag(ResourceLocation tagId);
+    }
+    
+    public static final ItemLookup REGISTRY = new ItemLookup() {
+        @Override
+        public Item get(ResourceLocation id) {
+            Item item = BuiltInRegistries.ITEM.get(id);
+            return item == null || item == Items.AIR ? null : item;
+        }
+        
+        @Override
+        public void forEach(BiConsumer<ResourceLocation, Item> action) {
+            for (Map.Entry<ResourceKey<Item>, Item> entry : BuiltInRegistries.ITEM.entrySet()) {
+                if (entry.getValue() != Items.AIR) {
+                    action.accept(entry.getKey().location(), entry.getValue());
+                }
+            }
+        }
+        
+        @Override
+        public Iterable<Item> tag(ResourceLocation tagId) {
+            // Tags are bound once datapacks load, before that the registry has none at all
+            if (BuiltInRegistries.ITEM.getTagNames().findAny().isEmpty()) return null;
+            
+            List<Item> members = new ArrayList<>();
+            for (Holder<Item> holder : BuiltInRegistries.ITEM.getTagOrEmpty(TagKey.create(Registries.ITEM, tagId))) {
+                members.add(holder.value());
+            }
+            return members;
+        }
+    };
+    
+    /**
+     * Compile "selector+category:effect_id@level" entries against the item registry,
+     * leaving out armor of the disabled materials
+     */
+    public static Result compile(List<String> entries, Set<String> disabledMaterials) {
+        return compile(entries, REGISTRY, disabledMaterials);
+    }
+    
+    /**
+     * Compile entries, looking items up in the given source
+     */
+    public static Result compile(List<String> entries, ItemLookup items) {
+        return compile(entries, items, Set.of());
+    }
+    
+    /**
+     * Compile entries, looking items up in the given source and leaving out armor of the disabled materials
+     */
+    public static Result compile(List<String> entries, ItemLookup items, Set<String> disabledMaterials) {
+        Compilation compilation = new Compilation(items, disabledMaterials);
+        for (int i = 0; i < entries.size(); i++) {
+            compilation.compileEntry(i + 1, entries.get(i));
+        }
+        return compilation.finish();
+    }
+    
+    /**
+     * Parse "category:effect_id" or "category:effect_id@level", null with the reason in error[0] if invalid
+     */
+    public static ArmorEffectType parseEffect(String text, String[] error) {
+        int colon = text.indexOf(':');
+        if (colon < 0) {
+            error[0] = "expected 'category:effect' in '" + text + "'";
+            return null;
+        }
+        
+        int at = text.indexOf('@', colon);
+        int level = 1; // Default level
+        if (at >= 0) {
+            level = parseLevel(text, at + 1);
+            if (level < 1) {
+                error[0] = "level must be a number from 1 to 255 in '" + text + "'";
+                return null;
+            }
+        }
+        
+        ArmorEffectType.Category category = parseCategory(text, colon);
+        if (category == null) {
+            error[0] = "unknown category '" + text.substring(0, colon) + "', expected potion, damage, enchant or attribute";
+            return null;
+        }
+        
+        String effectStr = text.substring(colon + 1, at >= 0 ? at : text.length()).trim();
+        ResourceLocation effectId = parseId(effectStr);
+        if (effectId == null) {
+            error[0] = "invalid effect id '" + effectStr + "'";
+            return null;
+        }
+        
+        return switch (category) {
+            case POTION -> new ArmorEffectType.PotionArmorEffect(effectId, level);
+            case DAMAGE_REDUCTION -> new ArmorEffectType.DamageReductionArmorEffect(effectId, level);
+            case ENCHANTMENT -> new ArmorEffectType.EnchantmentArmorEffect(effectId, level);
+            case ATTRIBUTE -> new ArmorEffectType.AttributeArmorEffect(effectId, level);
+        };
+    }
+    
+    private static ArmorEffectType.Category parseCategory(String text, int end) {
+        if (end == 6 && text.regionMatches(true, 0, "potion", 0, end)) return ArmorEffectType.Category.POTION;
+        if (end == 6 && text.regionMatches(true, 0, "damage", 0, end)) return ArmorEffectType.Category.DAMAGE_REDUCTION;
+        if (end == 7 && text.regionMatches(true, 0, "enchant", 0, end)) return ArmorEffectType.Category.ENCHANTMENT;
+        if (end == 9 && text.regionMatches(true, 0, "attribute", 0, end)) return ArmorEffectType.Category.ATTRIBUTE;
+        if (end == 4 && text.regionMatches(true, 0, "attr", 0, end)) return ArmorEffectType.Category.ATTRIBUTE;
+        return null;
+    }
+    
+    /**
+     * Digits from start to the end of the text, -1 if anything else is there or the value is out of range
+     */
+    private static int parseLevel(String text, int start) {
+        int end = text.length();
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start >= end || end - start > 3) return -1;
+        
+        int level = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            level = level * 10 + (c - '0');
+        }
+        return level <= 255 ? level : -1;
+    }
+    
+    private static ResourceLocation parseId(String id) {
+        // Validate first, tryParse throws and catches internally on bad input
+        if (id.isEmpty() || !ResourceLocation.isValidResourceLocation(id)) return null;
+        return ResourceLocation.tryParse(id);
+    }
+    
+    /**
+     * State of one compile run. Selectors are expanded against an index of the item
+     * registry that is built the first time a selector is seen, so configs listing only
+     * concrete items never walk the registry.
+     */
+    private static class Compilation {
+        private final ItemLookup items;
+        private final Map<Item, ArmorEffectBundle.Builder> builders = new Reference2ObjectLinkedOpenHashMap<>();
+        // Effects from entries naming their item directly, selectors never replace these
+        private final Set<ArmorEffectType> explicit = new ReferenceOpenHashSet<>();
+        private final Set<UUID> modifierIds = new HashSet<>();
+        private final List<Diagnostic> diagnostics = new ArrayList<>();
+        // Several entries often share a selector, each is expanded once
+        private final Map<String, List<Item>> expansions = new HashMap<>();
+        // Gated here so the hot paths never check a material
+        private final Set<String> disabledMaterials;
+        private int gated;
+        private ItemIndex index;
+        private boolean tagSelectors;
+        
+        private Compilation(ItemLookup items, Set<String> disabledMaterials) {
+            this.items = items;
+            this.disabledMaterials = disabledMaterials;
+        }
+        
+        private void compileEntry(int line, String entry) {
+            // Format: "selector+category:effect_id@level"
+            // Example: "minecraft:diamond_chestplate+potion:minecraft:regeneration@2"
+            int plus = entry.indexOf('+');
+            if (plus < 0) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "expected 'item+effect'"));
+                return;
+            }
+            
+            String selector = entry.substring(0, plus).trim();
+            String[] error = new String[1];
+            ArmorEffectType effect = parseEffect(entry.substring(plus + 1).trim(), error);
+            if (effect == null) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, error[0]));
+                return;
+            }
+            
+            if (effect instanceof ArmorEffectType.PotionArmorEffect potionEffect && !potionEffect.resolve()) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "unknown potion effect " + effect.getEffectId()));
+                return;
+            }
+            if (effect instanceof ArmorEffectType.EnchantmentArmorEffect enchantmentEffect && !enchantmentEffect.resolve()) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "unknown enchantment " + effect.getEffectId()));
+                return;
+            }
+            if (effect instanceof ArmorEffectType.DamageReductionArmorEffect damageEffect && damageEffect.getProtectionBit() == 0) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.WARNING,
+                    "unknown protection type " + effect.getEffectId().getPath() + ", it will not reduce any damage"));
+            }
+            if (effect instanceof ArmorEffectType.DamageReductionArmorEffect && entry.indexOf('@', plus) >= 0) {
+                // Only set bonuses use the level of a damage effect
+                diagnostics.add(new Diagnostic(line, entry, Severity.WARNING,
+                    "level is ignored, each piece reduces damage by its slot percentage"));
+            }
+            
+            if (isSelector(selector)) {
+                compileSelector(line, entry, selector, effect);
+            } else {
+                compileItem(line, entry, selector, effect);
+            }
+        }
+        
+        private void compileItem(int line, String entry, String itemStr, ArmorEffectType effect) {
+            ResourceLocation itemLocation = parseId(itemStr);
+            if (itemLocation == null) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "invalid item id '" + itemStr + "'"));
+                return;
+            }
+            
+            Item item = items.get(itemLocation);
+            if (item == null) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "unknown item " + itemLocation));
+                return;
+            }
+            if (isMaterialDisabled(item, disabledMaterials)) {
+                gated++;
+                return;
+            }
+            
+            ArmorEffectBundle.Builder builder = builders.get(item);
+            ArmorEffectType existing = builder != null ? builder.find(effect) : null;
+            if (effect instanceof ArmorEffectType.AttributeArmorEffect attributeEffect && !resolveAttribute(attributeEffect, itemLocation, existing)) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "unknown attribute " + effect.getEffectId().getPath()));
+                return;
+            }
+            
+            // Items may carry several effects
+            ArmorEffectType replaced = builders.computeIfAbsent(item, i -> new ArmorEffectBundle.Builder()).add(effect);
+            explicit.add(effect);
+            if (replaced != null && explicit.contains(replaced)) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.WARNING, "duplicate effect " + effect.getEffectId() + ", replaces an earlier entry"));
+            }
+        }
+        
+        private void compileSelector(int line, String entry, String selector, ArmorEffectType effect) {
+            List<Item> matched = expansions.get(selector);
+            if (matched == null) {
+                matched = expand(line, entry, selector);
+                if (matched == null) return;
+                expansions.put(selector, matched);
+            }
+            if (matched.isEmpty()) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.WARNING, "selector " + selector + " matched no items"));
+                return;
+            }
+            
+            for (Item item : matched) {
+                if (isMaterialDisabled(item, disabledMaterials)) {
+                    gated++;
+                    continue;
+                }
+                ArmorEffectBundle.Builder builder = builders.get(item);
+                ArmorEffectType existing = builder != null ? builder.find(effect) : null;
+                if (existing != null && explicit.contains(existing)) continue;
+                
+                ArmorEffectType itemEffect = effect;
+                if (effect instanceof ArmorEffectType.AttributeArmorEffect) {
+                    // Attribute modifiers carry per item ids, the other categories share one instance
+                    ArmorEffectType.AttributeArmorEffect attributeEffect = new ArmorEffectType.AttributeArmorEffect(effect.getEffectId(), effect.getLevel());
+                    if (!resolveAttribute(attributeEffect, index.idOf(item), existing)) {
+                        // Fails the same way for every item, so only the first one gets here
+                        diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "unknown attribute " + effect.getEffectId().getPath()));
+                        return;
+                    }
+                    itemEffect = attributeEffect;
+                }
+                
+                builders.computeIfAbsent(item, i -> new ArmorEffectBundle.Builder()).add(itemEffect);
+            }
+        }
+        
+        /**
+         * Resolve an attribute effect. One replacing an earlier effect on the same item takes over its
+         * modifier ids, so saved modifiers do not depend on whether the config repeats an entry.
+         */
+        private boolean resolveAttribute(ArmorEffectType.AttributeArmorEffect effect, ResourceLocation itemId, ArmorEffectType existing) {
+            if (existing instanceof ArmorEffectType.AttributeArmorEffect previous) {
+                return effect.restore(itemId, previous.getModifierIds());
+            }
+            return effect.resolve(itemId, modifierIds);
+        }
+        
+        /**
+         * Items matched by a selector, empty if none, null if the selector is invalid or cannot be expanded yet
+         */
+        private List<Item> expand(int line, String entry, String selector) {
+            if (index == null) {
+                index = new ItemIndex(items);
+            }
+            
+            if (selector.startsWith("#")) {
+                tagSelectors = true;
+                ResourceLocation tagId = parseId(selector.substring(1));
+                if (tagId == null) {
+                    diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "invalid item tag '" + selector + "'"));
+                    return null;
+                }
+                // Expanded again once tags are loaded
+                Iterable<Item> members = items.tag(tagId);
+                if (members == null) return null;
+                
+                List<Item> matched = new ArrayList<>();
+                for (Item item : members) {
+                    if (index.idOf(item) != null) matched.add(item);
+                }
+                return matched;
+            }
+            
+            if (selector.startsWith(MATERIAL_SELECTOR)) {
+                String material = selector.substring(MATERIAL_SELECTOR.length()).trim();
+                return index.byMaterial.getOrDefault(material, List.of());
+            }
+            
+            // Glob over item ids, "*" matches any run of characters
+            int colon = selector.indexOf(':');
+            String namespace = colon >= 0 ? selector.substring(0, colon) : "minecraft";
+            String path = selector.substring(colon + 1);
+            if (namespace.isEmpty() || path.isEmpty() || !ResourceLocation.isValidResourceLocation(namespace.replace('*', 'a') + ":" + path.replace('*', 'a'))) {
+                diagnostics.add(new Diagnostic(line, entry, Severity.ERROR, "invalid item selector '" + selector + "'"));
+                return null;
+            }
+            
+            List<Item> matched = new ArrayList<>();
+            if (namespace.indexOf('*') < 0) {
+                // Only the items of one mod need to be looked at
+                index.collect(index.byNamespace.get(namespace), path, matched);
+            } else {
+                for (Map.Entry<String, List<ResourceLocation>> mod : index.byNamespace.entrySet()) {
+                    if (globMatches(namespace, mod.getKey())) {
+                        index.collect(mod.getValue(), path, matched);
+                    }
+                }
+            }
+            return matched;
+        }
+        
+        private Result finish() {
+            Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects = new Reference2ObjectOpenHashMap<>(builders.size());
+            int effectCount = 0;
+            for (Map.Entry<Item, ArmorEffectBundle.Builder> entry : builders.entrySet()) {
+                ArmorEffectBundle bundle = entry.getValue().build();
+                effects.put(entry.getKey(), bundle);
+                effectCount += bundle.size();
+            }
+            return new Result(effects, effectCount, gated, modifierIds, diagnostics, tagSelectors);
+        }
+    }
+    
+    /**
+     * Item ids grouped by namespace and armor items grouped by material, built in one pass over the items
+     */
+    private static class ItemIndex {
+        private final Reference2ObjectOpenHashMap<Item, ResourceLocation> ids = new Reference2ObjectOpenHashMap<>();
+        private final Map<String, List<ResourceLocation>> byNamespace = new HashMap<>();
+        private final Map<ResourceLocation, Item> byId = new HashMap<>();
+        private final Map<String, List<Item>> byMaterial = new HashMap<>();
+        
+        private ItemIndex(ItemLookup items) {
+            items.forEach((id, item) -> {
+                ids.put(item, id);
+                byId.put(id, item);
+                byNamespace.computeIfAbsent(id.getNamespace(), n -> new ArrayList<>()).add(id);
+                if (item instanceof ArmorItem armor) {
+                    byMaterial.computeIfAbsent(armor.getMaterial().getName(), m -> new ArrayList<>()).add(item);
+                }
+            });
+        }
+        
+        private ResourceLocation idOf(Item item) {
+            return ids.get(item);
+        }
+        
+        private void collect(List<ResourceLocation> candidates, String pathGlob, List<Item> matched) {
+            if (candidates == null) return;
+            for (ResourceLocation id : candidates) {
+                if (globMatches(pathGlob, id.getPath())) {
+                    matched.add(byId.get(id));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether the item is armor of one of the disabled materials
+     */
+    public static boolean isMaterialDisabled(Item item, Set<String> disabledMaterials) {
+        return !disabledMaterials.isEmpty() && item instanceof ArmorItem armor && disabledMaterials.contains(armor.getMaterial().getName());
+    }
+    
+    private static boolean isSelector(String selector) {
+        return selector.startsWith("#") || selector.startsWith(MATERIAL_SELECTOR) || selector.indexOf('*') >= 0;
+    }
+    
+    /**
+     * Match text against a pattern where '*' stands for any run of characters, without allocating
+     */
+    static boolean globMatches(String glob, String text) {
+        int first = glob.indexOf('*');
+        if (first < 0) return glob.equals(text);
+        
+        int last = glob.lastIndexOf('*');
+        int suffixLength = glob.length() - last - 1;
+        int end = text.length() - suffixLength;
+        if (end < first
+            || !text.regionMatches(0, glob, 0, first)
+            || !text.regionMatches(end, glob, last + 1, suffixLength)) {
+            return false;
+        }
+        
+        // Each literal between two stars must appear in order between the prefix and suffix
+        int position = first;
+        int segment = first + 1;
+        while (segment <= last) {
+            int next = glob.indexOf('*', segment);
+            int length = next - segment;
+            if (length > 0) {
+                int found = -1;
+                for (int i = position; i + length <= end; i++) {
+                    if (text.regionMatches(i, glob, segment, length)) {
+                        found = i;
+                        break;
+                    }
+                }
+                if (found < 0) return false;
+                position = found + length;
+            }
+            segment = next + 1;
+        }
+        return true;
+    }
+    
+    public static class Result {
+        private final Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects;
+        private final int effectCount;
+        private final int gatedCount;
+        private final Set<UUID> modifierIds;
+        private final List<Diagnostic> diagnostics;
+        private final boolean tagSelectors;
+        
+        Result(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects, int effectCount, int gatedCount,
+                       Set<UUID> modifierIds, List<Diagnostic> diagnostics, boolean tagSelectors) {
+            this.effects = effects;
+            this.effectCount = effectCount;
+            this.gatedCount = gatedCount;
+            this.modifierIds = modifierIds;
+            this.diagnostics = Collections.unmodifiableList(diagnostics);
+            this.tagSelectors = tagSelectors;
+        }
+        
+        public Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> getEffects() {
+            return effects;
+        }
+        
+        public int getEffectCount() {
+            return effectCount;
+        }
+        
+        /**
+         * Item effects left out because the item's armor material is disabled
+         */
+        public int getGatedCount() {
+            return gatedCount;
+        }
+        
+        /**
+         * Attribute modifier ids taken by the compiled effects
+         */
+        public Set<UUID> getModifierIds() {
+            return modifierIds;
+        }
+        
+        public List<Diagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+        
+        /**
+         * Whether any entry selects items by tag, those need compiling again when tags reload
+         */
+        public boolean hasTagSelectors() {
+            return tagSelectors;
+        }
+        
+        public long count(Severity severity) {
+            return diagnostics.stream().filter(d -> d.getSeverity() == severity).count();
+        }
+    }
+    
+    public static class Diagnostic {
+        private final int line;
+        private final String entry;
+        private final Severity severity;
+        private final String reason;
+        
+        Diagnostic(int line, String entry, Severity severity, String reason) {
+            this.line = line;
+            this.entry = entry;
+            this.severity = severity;
+            this.reason = reason;
+        }
+        
+        /**
+         * 1-based position of the entry in the config list
+         */
+        public int getLine() {
+            return line;
+        }
+        
+        public String getEntry() {
+            return entry;
+        }
+        
+        public Severity getSeverity() {
+            return severity;
+        }
+        
+        public String getReason() {
+            return reason;
+        }
+        
+        @Override
+        public String toString() {
+            return "entry " + line + ": " + severity.name().toLowerCase(Locale.ROOT) + ", " + reason + " (" + entry + ")";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.armoreffects.system;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Handler timings and effect counters, switched on with the enable_metrics config option.
+ * When disabled every call is a single boolean check and nothing is recorded.
+ * Updated from the server thread without locking. Samples taken on other threads, such as config
+ * reloads on the config watcher thread, are queued and folded in on the server thread.
+ */
+public class ArmorEffectMetrics {
+    
+    public enum Timer {
+        LIVING_HURT("living_hurt"),
+        ENCHANTMENT_HURT("enchantment_hurt"),
+        PLAYER_TICK("player_tick"),
+        EQUIPMENT_CHANGE("equipment_change"),
+        ATTRIBUTE_RECONCILE("attribute_reconcile"),
+        POTION_RECONCILE("potion_reconcile"),
+        CONFIG_RELOAD("config_reload");
+        
+        private final String name;
+        
+        Timer(String name) {
+            this.name = name;
+        }
+    }
+    
+    public enum Counter {
+        REGISTRY_HIT("registry_hit"),
+        REGISTRY_MISS("registry_miss"),
+        LOADOUT_CACHE_HIT("loadout_cache_hit"),
+        LOADOUT_CACHE_MISS("loadout_cache_miss"),
+        POTION_REFRESH_SKIPPED("potion_refresh_skipped"),
+        TRACKING_REJECTED("tracking_rejected"),
+        RELOAD_REAPPLIED("reload_reapplied");
+        
+        private final String name;
+        
+        Counter(String name) {
+            this.name = name;
+        }
+    }
+    
+    private static final Histogram[] TIMERS = new Histogram[Timer.values().length];
+    private static final long[] COUNTERS = new long[Counter.values().length];
+    private static final long[] APPLICATIONS = new long[ArmorEffectType.Category.values().length];
+    private static final ArmorEffectType.Category[] CATEGORIES = ArmorEffectType.Category.values();
+    // Timer ordinal and duration of samples recorded off the server thread
+    private static final ConcurrentLinkedQueue<long[]> QUEUED = new ConcurrentLinkedQueue<>();
+    
+    static {
+        for (int i = 0; i < TIMERS.length; i++) {
+            TIMERS[i] = new Histogram();
+        }
+    }
+    
+    public static boolean isEnabled() {
+        return ArmorEffectsConfig.enableMetrics;
+    }
+    
+    /**
+     * Start timing, returns 0 when metrics are disabled
+     */
+    public static long start() {
+        return ArmorEffectsConfig.enableMetrics ? System.nanoTime() : 0L;
+    }
+    
+    /**
+     * Record the time since {@link #start()}, ignored if timing was not started
+     */
+    public static void stop(Timer timer, long start) {
+        if (start != 0L) {
+            TIMERS[timer.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Like {@link #stop}, safe to call from any thread. The sample shows up in the next report.
+     */
+    public static void stopFromAnyThread(Timer timer, long start) {
+        if (start != 0L) {
+            QUEUED.add(new long[] { timer.ordinal(), System.nanoTime() - start });
+        }
+    }
+    
+    private static void drainQueued() {
+        long[] sample;
+        while ((sample = QUEUED.poll()) != null) {
+            TIMERS[(int) sample[0]].record(sample[1]);
+        }
+    }
+    
+    public static void count(Counter counter) {
+        if (ArmorEffectsConfig.enableMetrics) {
+            COUNTERS[counter.ordinal()]++;
+        }
+    }
+    
+    /**
+     * An effect of the category took effect on an entity
+     */
+    public static void countApplication(ArmorEffectType.Category category) {
+        if (ArmorEffectsConfig.enableMetrics) {
+            APPLICATIONS[category.ordinal()]++;
+        }
+    }
+    
+    public static void reset() {
+        QUEUED.clear();
+        for (Histogram histogram : TIMERS) {
+            histogram.reset();
+        }
+        Arrays.fill(COUNTERS, 0L);
+        Arrays.fill(APPLICATIONS, 0L);
+    }
+    
+    /**
+     * Human-readable summary, one line per timer followed by the counters
+     */
+    public static List<String> report() {
+        drainQueued();
+        List<String> lines = new ArrayList<>();
+        for (Timer timer : Timer.values()) {
+            Histogram histogram = TIMERS[timer.ordinal()];
+            lines.add(String.format(Locale.ROOT, "%s: %d calls, mean %.1f us, p50 < %.1f us, p99 < %.1f us, max %.1f us, total %.1f ms",
+                timer.name, histogram.count, histogram.mean() / 1000.0, histogram.percentile(0.50) / 1000.0,
+                histogram.percentile(0.99) / 1000.0, histogram.maxNanos / 1000.0, histogram.totalNanos / 1_000_000.0));
+        }
+        for (Counter counter : Counter.values()) {
+            lines.add(counter.name + ": " + COUNTERS[counter.ordinal()]);
+        }
+        lines.add("tracked_entities: " + ArmorEntityTracker.size() + " (peak " + ArmorEntityTracker.getPeakSize() + ")");
+        lines.add("reload_pending: " + ReloadPropagator.getPendingCount());
+        lines.add("stale_modifiers_removed: " + AttributeReconciler.getStaleRemovedCount() + " (from " + AttributeReconciler.getStaleEntityCount() + " entities)");
+        for (ArmorEffectType.Category category : CATEGORIES) {
+            lines.add("applied_" + category.name().toLowerCase(Locale.ROOT) + ": " + APPLICATIONS[category.ordinal()]);
+        }
+        return lines;
+    }
+    
+    /**
+     * The current values as CSV rows, the same fields as {@link #report()}.
+     * Taken on the server thread so the rows can be written from another one.
+     */
+    public static List<String> csvRows(long timestamp) {
+        drainQueued();
+        List<String> rows = new ArrayList<>();
+        for (Timer timer : Timer.values()) {
+            Histogram histogram = TIMERS[timer.ordinal()];
+            rows.add(String.format(Locale.ROOT, "%d,%s,%d,%.1f,%.2f,%.1f,%.1f,%.1f", timestamp, timer.name, histogram.count,
+                histogram.totalNanos / 1000.0, histogram.mean() / 1000.0, histogram.percentile(0.50) / 1000.0,
+                histogram.percentile(0.99) / 1000.0, histogram.maxNanos / 1000.0));
+        }
+        for (Counter counter : Counter.values()) {
+            rows.add(countRow(timestamp, counter.name, COUNTERS[counter.ordinal()]));
+        }
+        rows.add(countRow(timestamp, "tracked_entities", ArmorEntityTracker.size()));
+        rows.add(countRow(timestamp, "tracked_entities_peak", ArmorEntityTracker.getPeakSize()));
+        rows.add(countRow(timestamp, "reload_pending", ReloadPropagator.getPendingCount()));
+        rows.add(countRow(timestamp, "stale_modifiers_removed", AttributeReconciler.getStaleRemovedCount()));
+        rows.add(countRow(timestamp, "stale_modifier_entities", AttributeReconciler.getStaleEntityCount()));
+        for (ArmorEffectType.Category category : CATEGORIES) {
+            rows.add(countRow(timestamp, "applied_" + category.name().toLowerCase(Locale.ROOT), APPLICATIONS[category.ordinal()]));
+        }
+        return rows;
+    }
+    
+    private static String countRow(long timestamp, String metric, long count) {
+        return timestamp + "," + metric + "," + count + ",,,,,";
+    }
+    
+    /**
+     * Append rows from {@link #csvRows} to a CSV file, writing the header if the file is new
+     */
+    public static void appendCsv(Path file, List<String> rows) throws IOException {
+        boolean newFile = !Files.exists(file);
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                writer.write("timestamp,metric,count,total_us,mean_us,p50_us,p99_us,max_us");
+                writer.newLine();
+            }
+            for (String row : rows) {
+                writer.write(row);
+                writer.newLine();
+            }
+        }
+    }
+    
+    /**
+     * Latency histogram with power-of-two nanosecond buckets, bucket i holds [2^i, 2^(i+1))
+     */
+    private static class Histogram {
+        private final long[] buckets = new long[Long.SIZE];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        
+        private void record(long nanos) {
+            buckets[63 - Long.numberOfLeadingZeros(nanos | 1L)]++;
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+        
+        private double mean() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+        
+        /**
+         * Upper bound of the bucket holding the given quantile
+         */
+        private double percentile(double quantile) {
+            if (count == 0) return 0.0;
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Math.pow(2, i + 1), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+        
+        private void reset() {
+            Arrays.fill(buckets, 0L);
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+    }
+}
\ No newline at end of file
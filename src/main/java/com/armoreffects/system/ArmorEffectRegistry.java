@@ -1,88 +1,147 @@
 package com.armoreffects.system;
 
+import com.armoreffects.config.ArmorEffectsConfig;
 import com.mojang.logging.LogUtils;
-import net.minecraft.core.registries.BuiltInRegistries;
-import net.minecraft.resources.ResourceLocation;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.Items;
 import org.slf4j.Logger;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class ArmorEffectRegistry {
     private static final Logger LOGGER = LogUtils.getLogger();
-    private static final Map<Item, ArmorEffectType> ITEM_EFFECTS = new HashMap<>();
+    private static final int MAX_LOGGED_DIAGNOSTICS = 20;
     
-    public static void clear() {
-        ITEM_EFFECTS.clear();
+    // Rebuilt off to the side on every load and published with a single volatile write,
+    // so readers never lock and never see a half-populated table
+    private static volatile Snapshot snapshot = Snapshot.EMPTY;
+    
+    /**
+     * All effects of the item, never null
+     */
+    public static ArmorEffectBundle getEffects(Item item) {
+        return snapshot.table.get(item);
     }
     
-    public static void registerEffect(Item item, ArmorEffectType effect) {
-        ITEM_EFFECTS.put(item, effect);
-        LOGGER.debug("Registered effect {} for item {}", effect.getEffectId(), BuiltInRegistries.ITEM.getKey(item));
+    public static boolean hasEffect(Item item) {
+        return !snapshot.table.get(item).isEmpty();
     }
     
-    public static ArmorEffectType getEffect(Item item) {
-        return ITEM_EFFECTS.get(item);
+    /**
+     * Incremented on every load so cached loadouts can tell they are stale
+     */
+    public static int getGeneration() {
+        return snapshot.generation;
     }
     
-    public static boolean hasEffect(Item item) {
-        return ITEM_EFFECTS.containsKey(item);
+    /**
+     * The compiled armor sets, never null
+     */
+    public static ArmorSetTable getSets() {
+        return snapshot.sets;
     }
     
     public static void loadFromConfig(List<String> configEntries) {
-        clear();
-        
+        loadFromConfig(configEntries, List.of(), List.of());
+    }
+    
+    public static void loadFromConfig(List<String> configEntries, List<String> setEntries, List<String> setBonusEntries) {
+        loadFromConfig(configEntries, setEntries, setBonusEntries, ArmorEffectCompiler.REGISTRY);
+    }
+    
+    /**
+     * Load with items looked up through the given lookup, e.g. stand-in items in benchmarks.
+     * The on-disk cache is keyed on the game's item registry and only used with {@link ArmorEffectCompiler#REGISTRY}.
+     */
+    public static synchronized void loadFromConfig(List<String> configEntries, List<String> setEntries, List<String> setBonusEntries,
+                                                   ArmorEffectCompiler.ItemLookup items) {
         if (configEntries == null) {
             LOGGER.warn("Config entries list is null, no effects loaded");
-            return;
+            configEntries = List.of();
         }
         
-        for (String entry : configEntries) {
-            try {
-                parseConfigEntry(entry);
-            } catch (Exception e) {
-                LOGGER.error("Failed to parse armor effect config entry: {}", entry, e);
-            }
-        }
+        ArmorEffectCompiler.Result result = ArmorEffectsConfig.cacheCompiledTable && items == ArmorEffectCompiler.REGISTRY
+            ? ArmorEffectTableCache.compile(ArmorEffectTableCache.getDefaultFile(), configEntries, ArmorEffectsConfig.disabledMaterials)
+            : ArmorEffectCompiler.compile(configEntries, items, ArmorEffectsConfig.disabledMaterials);
+        Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects = result.getEffects();
         
-        LOGGER.info("Loaded {} armor effects from config", ITEM_EFFECTS.size());
+        ArmorEffectTable table = ArmorEffectTable.hashed(effects);
+        // Shares the modifier ids so set bonus modifiers never collide with per-item ones
+        ArmorSetTable sets = ArmorSetTable.compile(setEntries, setBonusEntries, result.getModifierIds(), ArmorEffectsConfig.disabledMaterials);
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(effects, table, sets, result.getDiagnostics(), result.hasTagSelectors(), previous.generation + 1);
+        // Modifiers and potions already on entities only change when re-evaluated
+        ReloadPropagator.submit(previous.view, previous.sets, snapshot.view, sets);
+        
+        reportDiagnostics(result);
+        LOGGER.info("Loaded {} armor effects for {} items from config", result.getEffectCount(), effects.size());
+        if (result.getGatedCount() > 0) {
+            LOGGER.info("Left out {} armor effects of disabled materials {}", result.getGatedCount(), ArmorEffectsConfig.disabledMaterials);
+        }
     }
     
-    private static void parseConfigEntry(String entry) {
-        // Format: "namespace:item_name+category:effect_id@level"
-        // Example: "minecraft:diamond_chestplate+potion:minecraft:regeneration@2"
+    private static void reportDiagnostics(ArmorEffectCompiler.Result result) {
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = result.getDiagnostics();
+        if (diagnostics.isEmpty()) return;
         
-        String[] parts = entry.split("\\+", 2);
-        if (parts.length != 2) {
-            throw new IllegalArgumentException("Invalid format, expected 'item+effect': " + entry);
+        // Generated configs can have thousands of problems, only the first few go to the log
+        // as warnings and the rest are written at debug level
+        for (int i = 0; i < diagnostics.size(); i++) {
+            if (i < MAX_LOGGED_DIAGNOSTICS) {
+                LOGGER.warn("Armor effect config {}", diagnostics.get(i));
+            } else {
+                LOGGER.debug("Armor effect config {}", diagnostics.get(i));
+            }
         }
+        LOGGER.warn("Armor effect config has {} errors and {} warnings, run /armoreffects diagnostics [page] to list them all",
+            result.count(ArmorEffectCompiler.Severity.ERROR), result.count(ArmorEffectCompiler.Severity.WARNING));
+    }
+    
+    /**
+     * Whether the loaded entries select items by tag and must be loaded again when tags change
+     */
+    public static boolean hasTagSelectors() {
+        return snapshot.tagSelectors;
+    }
+    
+    /**
+     * Problems found in the item effect entries by the last load
+     */
+    public static List<ArmorEffectCompiler.Diagnostic> getDiagnostics() {
+        return snapshot.diagnostics;
+    }
+    
+    /**
+     * Read-only view of the current table, no copy is made
+     */
+    public static Map<Item, ArmorEffectBundle> getAllEffects() {
+        return snapshot.view;
+    }
+    
+    private static class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new Reference2ObjectOpenHashMap<>(), 0);
         
-        String itemStr = parts[0].trim();
-        String effectStr = parts[1].trim();
+        private final ArmorEffectTable table;
+        private final ArmorSetTable sets;
+        private final Map<Item, ArmorEffectBundle> view;
+        private final List<ArmorEffectCompiler.Diagnostic> diagnostics;
+        private final boolean tagSelectors;
+        private final int generation;
         
-        // Parse item
-        ResourceLocation itemLocation = ResourceLocation.tryParse(itemStr);
-        if (itemLocation == null) {
-            throw new IllegalArgumentException("Invalid item identifier: " + itemStr);
+        private Snapshot(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects, int generation) {
+            this(effects, ArmorEffectTable.hashed(effects), ArmorSetTable.EMPTY, List.of(), false, generation);
         }
         
-        Item item = BuiltInRegistries.ITEM.get(itemLocation);
-        if (item == null || item == Items.AIR) {
-            LOGGER.warn("Unknown item: {}, skipping", itemStr);
-            return;
+        private Snapshot(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects, ArmorEffectTable table, ArmorSetTable sets,
+                         List<ArmorEffectCompiler.Diagnostic> diagnostics, boolean tagSelectors, int generation) {
+            this.table = table;
+            this.sets = sets;
+            this.view = Collections.unmodifiableMap(effects);
+            this.diagnostics = diagnostics;
+            this.tagSelectors = tagSelectors;
+            this.generation = generation;
         }
-        
-        // Parse effect
-        ArmorEffectType effect = ArmorEffectType.parse(effectStr);
-        
-        // Register the effect
-        registerEffect(item, effect);
-    }
-    
-    public static Map<Item, ArmorEffectType> getAllEffects() {
-        return new HashMap<>(ITEM_EFFECTS);
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.armoreffects.system;
+
+import net.minecraft.world.entity.LivingEntity;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Spreads periodic armor work across the refresh interval.
+ * Each entity gets a fixed phase derived from its entity id, so with an interval of 40
+ * roughly 1/40th of the online players are refreshed on any given tick. A per-tick budget
+ * caps the work done in one tick; entities over the budget are deferred to the next tick.
+ */
+public class ArmorEffectScheduler {
+    private static final ArrayDeque<LivingEntity> DEFERRED = new ArrayDeque<>();
+    private static final Set<LivingEntity> DEFERRED_SET = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    private static int currentTick = 0;
+    private static int budgetRemaining = Integer.MAX_VALUE;
+    
+    /**
+     * Start a new server tick with a fresh budget (0 or less means unlimited)
+     */
+    public static void beginTick(int maxPerTick) {
+        currentTick++;
+        budgetRemaining = maxPerTick > 0 ? maxPerTick : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Whether this entity's phase falls on the current tick
+     */
+    public static boolean isDue(LivingEntity entity, int interval) {
+        return isDue(entity.getId(), interval);
+    }
+    
+    public static boolean isDue(int entityId, int interval) {
+        if (interval <= 1) {
+            return true;
+        }
+        return phaseOf(entityId, interval) == currentPhase(interval);
+    }
+    
+    /**
+     * The tick within the interval on which this entity is due
+     */
+    public static int phaseOf(int entityId, int interval) {
+        return Math.floorMod(-entityId, interval);
+    }
+    
+    public static int currentPhase(int interval) {
+        return Math.floorMod(currentTick, interval);
+    }
+    
+    /**
+     * Run the task now if the budget allows it, otherwise queue the entity for the next tick
+     */
+    public static void runOrDefer(LivingEntity entity, Consumer<LivingEntity> task) {
+        if (budgetRemaining > 0) {
+            budgetRemaining--;
+            task.accept(entity);
+        } else if (DEFERRED_SET.add(entity)) {
+            DEFERRED.addLast(entity);
+        }
+    }
+    
+    /**
+     * Run deferred work first so entities pushed out of a previous tick are not starved
+     */
+    public static void drainDeferred(Consumer<LivingEntity> task) {
+        while (budgetRemaining > 0 && !DEFERRED.isEmpty()) {
+            LivingEntity entity = DEFERRED.pollFirst();
+            DEFERRED_SET.remove(entity);
+            if (entity.isRemoved()) {
+                continue;
+            }
+            budgetRemaining--;
+            task.accept(entity);
+        }
+    }
+    
+    public static void clear() {
+        DEFERRED.clear();
+        DEFERRED_SET.clear();
+        currentTick = 0;
+    }
+}
\ No newline at end of file
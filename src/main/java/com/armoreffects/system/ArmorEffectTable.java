@@ -0,0 +1,50 @@
+package com.armoreffects.system;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.item.Item;
+
+/**
+ * Lookup for the compiled item to effect table.
+ * An identity hash map keyed by the item; a flat array indexed by registry id was measured in
+ * EffectTableBenchmark and dropped, since every caller holds an item and the registry's own
+ * item to id lookup is a hash lookup as well.
+ */
+public interface ArmorEffectTable {
+    
+    /**
+     * The item's effects, {@link ArmorEffectBundle#EMPTY} if it has none
+     */
+    ArmorEffectBundle get(Item item);
+    
+    int size();
+    
+    /**
+     * Table over a copy of the effects, so the caller's map keeps returning null for items without effects
+     */
+    static ArmorEffectTable hashed(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects) {
+        Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> copy = new Reference2ObjectOpenHashMap<>(effects);
+        copy.defaultReturnValue(ArmorEffectBundle.EMPTY);
+        return new Hashed(copy);
+    }
+    
+    /**
+     * Identity hash table keyed by the item instance
+     */
+    class Hashed implements ArmorEffectTable {
+        private final Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects;
+        
+        private Hashed(Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects) {
+            this.effects = effects;
+        }
+        
+        @Override
+        public ArmorEffectBundle get(Item item) {
+            return effects.get(item);
+        }
+        
+        @Override
+        public int size() {
+            return effects.size();
+        }
+    }
+}
\ No newline at end of file
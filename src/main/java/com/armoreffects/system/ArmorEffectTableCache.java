@@ -0,0 +1,416 @@
+package com.armoreffects.system;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.ai.attributes.AttributeModifier;
+import net.minecraft.world.item.ArmorItem;
+import net.minecraft.world.item.Item;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The compiled item effect table kept on disk between starts.
+ * The file is keyed by a hash of every config value the compiler reads plus a fingerprint of
+ * the item, potion and enchantment registries. When the key matches, the file is read in one go
+ * and the table is rebuilt from item ids without parsing an entry or expanding a selector;
+ * anything else, including a damaged file, falls back to a full compile that rewrites it.
+ * Configs using tag selectors are never cached, their items depend on datapacks.
+ */
+public class ArmorEffectTableCache {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    
+    private static final int MAGIC = 0x41455443; // "AETC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    
+    private static final ArmorEffectType.Category[] CATEGORIES = ArmorEffectType.Category.values();
+    private static final ArmorEffectCompiler.Severity[] SEVERITIES = ArmorEffectCompiler.Severity.values();
+    // Indexed by EquipmentSlot.getIndex() for armor slots
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.FEET, EquipmentSlot.LEGS, EquipmentSlot.CHEST, EquipmentSlot.HEAD
+    };
+    
+    /**
+     * How items are numbered in the file; by their id in the game's item registry outside of tests
+     */
+    interface ItemIds {
+        int idOf(Item item);
+        
+        Item byId(int id);
+        
+        ResourceLocation keyOf(Item item);
+    }
+    
+    static final ItemIds REGISTRY = new ItemIds() {
+        @Override
+        public int idOf(Item item) {
+            return BuiltInRegistries.ITEM.getId(item);
+        }
+        
+        @Override
+        public Item byId(int id) {
+            return BuiltInRegistries.ITEM.byId(id);
+        }
+        
+        @Override
+        public ResourceLocation keyOf(Item item) {
+            return BuiltInRegistries.ITEM.getKey(item);
+        }
+    };
+    
+    /**
+     * Where the table is cached when the cache_compiled_table option is on
+     */
+    public static Path getDefaultFile() {
+        return FMLPaths.GAMEDIR.get().resolve("cache").resolve("armoreffects_table.bin");
+    }
+    
+    /**
+     * Load the table from the cache file if it was written for the same config and registries,
+     * otherwise compile it and write the file for the next start
+     */
+    public static ArmorEffectCompiler.Result compile(Path file, List<String> entries, Set<String> disabledMaterials) {
+        long key = computeKey(entries, disabledMaterials);
+        
+        ArmorEffectCompiler.Result cached = read(file, key);
+        if (cached != null) {
+            LOGGER.info("Loaded compiled armor effect table from {}", file);
+            return cached;
+        }
+        
+        ArmorEffectCompiler.Result result = ArmorEffectCompiler.compile(entries, disabledMaterials);
+        if (!result.hasTagSelectors()) {
+            write(file, key, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Hash of the config values the compiled table depends on and of the registries it was resolved against
+     */
+    static long computeKey(List<String> entries, Set<String> disabledMaterials) {
+        long hash = mix(0xcbf29ce484222325L, VERSION);
+        hash = mix(hash, entries.size());
+        for (String entry : entries) {
+            hash = mix(hash, entry);
+        }
+        for (String material : new TreeSet<>(disabledMaterials)) {
+            hash = mix(hash, material);
+        }
+        // Slot percentages end up in attribute and damage values, protection types in damage effects
+        hash = mix(hash, ArmorEffectsConfig.helmetEffectPercentage);
+        hash = mix(hash, ArmorEffectsConfig.chestplateEffectPercentage);
+        hash = mix(hash, ArmorEffectsConfig.leggingsEffectPercentage);
+        hash = mix(hash, ArmorEffectsConfig.bootsEffectPercentage);
+        List<String> protectionTypes = ArmorEffectsConfig.protectionTypes != null ? ArmorEffectsConfig.protectionTypes : List.of();
+        for (String protectionType : protectionTypes) {
+            hash = mix(hash, protectionType);
+        }
+        
+        // Item ids, materials and the effect registries decide what every entry resolves to
+        for (Item item : BuiltInRegistries.ITEM) {
+            hash = mix(hash, BuiltInRegistries.ITEM.getId(item));
+            hash = mix(hash, BuiltInRegistries.ITEM.getKey(item).toString());
+            if (item instanceof ArmorItem armor) {
+                hash = mix(hash, armor.getMaterial().getName());
+            }
+        }
+        hash = mixRegistry(hash, BuiltInRegistries.MOB_EFFECT);
+        hash = mixRegistry(hash, BuiltInRegistries.ENCHANTMENT);
+        return hash;
+    }
+    
+    private static <T> long mixRegistry(long hash, Registry<T> registry) {
+        for (T value : registry) {
+            hash = mix(hash, registry.getId(value));
+            hash = mix(hash, registry.getKey(value).toString());
+        }
+        return hash;
+    }
+    
+    private static long mix(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        // Separator so "ab","c" and "a","bc" differ
+        return (hash ^ 0xFFFF) * 0x100000001b3L;
+    }
+    
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    /**
+     * The cached table, null if the file is missing, written for another key or damaged
+     */
+    static ArmorEffectCompiler.Result read(Path file, long key) {
+        return read(file, key, REGISTRY);
+    }
+    
+    static ArmorEffectCompiler.Result read(Path file, long key, ItemIds itemIds) {
+        if (!Files.isRegularFile(file)) return null;
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The header is checked first, only a matching file is read in full
+            ByteBuffer header = readFully(channel, HEADER_SIZE);
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != key) {
+                return null;
+            }
+            
+            // A heap buffer rather than a mapping, which would hold the file open until it is
+            // garbage collected and make the next write fail to replace it on Windows
+            ByteBuffer buffer = readFully(channel, Math.toIntExact(channel.size() - HEADER_SIZE));
+            return decode(buffer, itemIds);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring unreadable armor effect table cache {}: {}", file, e.toString());
+            return null;
+        }
+    }
+    
+    /**
+     * The next bytes of the channel, fewer than asked for if the file ends first
+     */
+    private static ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+        return buffer.flip();
+    }
+    
+    private static ArmorEffectCompiler.Result decode(ByteBuffer buffer, ItemIds itemIds) {
+        String[] strings = new String[readVarInt(buffer)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(buffer);
+        }
+        
+        Set<UUID> modifierIds = new HashSet<>();
+        int modifierCount = readVarInt(buffer);
+        for (int i = 0; i < modifierCount; i++) {
+            modifierIds.add(new UUID(ArmorEffectType.AttributeArmorEffect.MODIFIER_ID_PREFIX, buffer.getLong()));
+        }
+        
+        int itemCount = readVarInt(buffer);
+        Reference2ObjectOpenHashMap<Item, ArmorEffectBundle> effects = new Reference2ObjectOpenHashMap<>(itemCount);
+        // Categories other than attributes share one instance per effect and level, like a compile
+        Map<Long, ArmorEffectType> shared = new HashMap<>();
+        int effectCount = 0;
+        for (int i = 0; i < itemCount; i++) {
+            Item item = itemIds.byId(readVarInt(buffer));
+            ResourceLocation itemId = itemIds.keyOf(item);
+            ArmorEffectBundle.Builder builder = new ArmorEffectBundle.Builder();
+            
+            int count = readVarInt(buffer);
+            for (int j = 0; j < count; j++) {
+                ArmorEffectType.Category category = CATEGORIES[buffer.get()];
+                int idIndex = readVarInt(buffer);
+                int level = buffer.get() & 0xFF;
+                ResourceLocation effectId = new ResourceLocation(strings[idIndex]);
+                
+                ArmorEffectType effect;
+                if (category == ArmorEffectType.Category.ATTRIBUTE) {
+                    effect = readAttribute(buffer, itemId, effectId, level);
+                } else {
+                    long sharedKey = ((long) category.ordinal() << 40) | ((long) idIndex << 8) | level;
+                    effect = shared.get(sharedKey);
+                    if (effect == null) {
+                        effect = createEffect(category, effectId, level);
+                        shared.put(sharedKey, effect);
+                    }
+                }
+                builder.add(effect);
+            }
+            ArmorEffectBundle bundle = builder.build();
+            effects.put(item, bundle);
+            effectCount += bundle.size();
+        }
+        
+        int gated = readVarInt(buffer);
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = new ArrayList<>();
+        int diagnosticCount = readVarInt(buffer);
+        for (int i = 0; i < diagnosticCount; i++) {
+            int line = readVarInt(buffer);
+            ArmorEffectCompiler.Severity severity = SEVERITIES[buffer.get()];
+            diagnostics.add(new ArmorEffectCompiler.Diagnostic(line, readString(buffer), severity, readString(buffer)));
+        }
+        return new ArmorEffectCompiler.Result(effects, effectCount, gated, modifierIds, diagnostics, false);
+    }
+    
+    private static ArmorEffectType readAttribute(ByteBuffer buffer, ResourceLocation itemId, ResourceLocation effectId, int level) {
+        UUID[] ids = new UUID[ARMOR_SLOTS.length];
+        int slots = buffer.get();
+        for (int slot = 0; slot < ARMOR_SLOTS.length; slot++) {
+            if ((slots & (1 << slot)) != 0) {
+                ids[slot] = new UUID(ArmorEffectType.AttributeArmorEffect.MODIFIER_ID_PREFIX, buffer.getLong());
+            }
+        }
+        
+        ArmorEffectType.AttributeArmorEffect effect = new ArmorEffectType.AttributeArmorEffect(effectId, level);
+        if (!effect.restore(itemId, ids)) {
+            throw new IllegalStateException("unknown attribute " + effectId.getPath());
+        }
+        return effect;
+    }
+    
+    private static ArmorEffectType createEffect(ArmorEffectType.Category category, ResourceLocation effectId, int level) {
+        // Resolution cannot fail when the registry fingerprint matched, if it does the file is not trusted
+        switch (category) {
+            case POTION -> {
+                ArmorEffectType.PotionArmorEffect effect = new ArmorEffectType.PotionArmorEffect(effectId, level);
+                if (!effect.resolve()) throw new IllegalStateException("unknown potion effect " + effectId);
+                return effect;
+            }
+            case ENCHANTMENT -> {
+                ArmorEffectType.EnchantmentArmorEffect effect = new ArmorEffectType.EnchantmentArmorEffect(effectId, level);
+                if (!effect.resolve()) throw new IllegalStateException("unknown enchantment " + effectId);
+                return effect;
+            }
+            case DAMAGE_REDUCTION -> {
+                return new ArmorEffectType.DamageReductionArmorEffect(effectId, level);
+            }
+            default -> throw new IllegalStateException("unexpected category " + category);
+        }
+    }
+    
+    /**
+     * Write the table next to the old file and move it in place, a failure only costs the next start a compile
+     */
+    static void write(Path file, long key, ArmorEffectCompiler.Result result) {
+        write(file, key, result, REGISTRY);
+    }
+    
+    static void write(Path file, long key, ArmorEffectCompiler.Result result, ItemIds itemIds) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(key);
+                encode(out, result, itemIds);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write armor effect table cache {}: {}", file, e.toString());
+        }
+    }
+    
+    private static void encode(DataOutputStream out, ArmorEffectCompiler.Result result, ItemIds itemIds) throws IOException {
+        // Effect ids repeat across items, each is written once and referenced by index
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (ArmorEffectBundle bundle : result.getEffects().values()) {
+            for (ArmorEffectType effect : bundle.getEffects()) {
+                String id = effect.getEffectId().toString();
+                if (stringIndex.putIfAbsent(id, strings.size()) == null) {
+                    strings.add(id);
+                }
+            }
+        }
+        writeVarInt(out, strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+        
+        writeVarInt(out, result.getModifierIds().size());
+        for (UUID id : result.getModifierIds()) {
+            out.writeLong(id.getLeastSignificantBits());
+        }
+        
+        writeVarInt(out, result.getEffects().size());
+        for (Map.Entry<Item, ArmorEffectBundle> entry : result.getEffects().entrySet()) {
+            writeVarInt(out, itemIds.idOf(entry.getKey()));
+            ArmorEffectType[] effects = entry.getValue().getEffects();
+            writeVarInt(out, effects.length);
+            for (ArmorEffectType effect : effects) {
+                out.writeByte(effect.getCategory().ordinal());
+                writeVarInt(out, stringIndex.get(effect.getEffectId().toString()));
+                out.writeByte(effect.getLevel());
+                if (effect instanceof ArmorEffectType.AttributeArmorEffect attribute) {
+                    writeModifierIds(out, attribute);
+                }
+            }
+        }
+        
+        writeVarInt(out, result.getGatedCount());
+        writeVarInt(out, result.getDiagnostics().size());
+        for (ArmorEffectCompiler.Diagnostic diagnostic : result.getDiagnostics()) {
+            writeVarInt(out, diagnostic.getLine());
+            out.writeByte(diagnostic.getSeverity().ordinal());
+            writeString(out, diagnostic.getEntry());
+            writeString(out, diagnostic.getReason());
+        }
+    }
+    
+    private static void writeModifierIds(DataOutputStream out, ArmorEffectType.AttributeArmorEffect attribute) throws IOException {
+        int slots = 0;
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            if (attribute.getModifier(slot) != null) slots |= 1 << slot.getIndex();
+        }
+        // Presence bits first, then the id of each slot that has a modifier
+        out.writeByte(slots);
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            AttributeModifier modifier = attribute.getModifier(slot);
+            if (modifier != null) {
+                out.writeLong(modifier.getId().getLeastSignificantBits());
+            }
+        }
+    }
+    
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("varint too long");
+    }
+    
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -1,8 +1,21 @@
 package com.armoreffects.system;
 
+import com.armoreffects.config.ArmorEffectsConfig;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.Attribute;
+import net.minecraft.world.entity.ai.attributes.AttributeModifier;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.item.enchantment.Enchantment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public abstract class ArmorEffectType {
     
@@ -13,6 +26,11 @@ public abstract class ArmorEffectType {
         ATTRIBUTE
     }
     
+    // Indexed by EquipmentSlot.getIndex() for armor slots
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.FEET, EquipmentSlot.LEGS, EquipmentSlot.CHEST, EquipmentSlot.HEAD
+    };
+    
     protected final Category category;
     protected final ResourceLocation effectId;
     protected final int level;
@@ -37,6 +55,19 @@ public abstract class ArmorEffectType {
     
     public abstract void applyEffect(ArmorEffectContext context);
     
+    /**
+     * Get the multiplier for different equipment slots based on config
+     */
+    private static double getSlotMultiplier(EquipmentSlot slot) {
+        return switch (slot) {
+            case HEAD -> ArmorEffectsConfig.helmetEffectPercentage;
+            case CHEST -> ArmorEffectsConfig.chestplateEffectPercentage;
+            case LEGS -> ArmorEffectsConfig.leggingsEffectPercentage;
+            case FEET -> ArmorEffectsConfig.bootsEffectPercentage;
+            default -> 100.0;
+        };
+    }
+    
     public static ArmorEffectType parse(String configString) {
         // Format: "category:effect_id" or "category:effect_id@level"
         // Examples: 
@@ -45,136 +76,277 @@ public abstract class ArmorEffectType {
         // "enchant:minecraft:fire_protection@4" - Fire Protection IV
         // "damage:fire_protection" - No level needed
         // "attribute:speed" - No level needed
+        String[] error = new String[1];
+        ArmorEffectType effect = ArmorEffectCompiler.parseEffect(configString.trim(), error);
+        if (effect == null) {
+            throw new IllegalArgumentException("Invalid effect format: " + error[0]);
+        }
+        return effect;
+    }
+    
+    public static class PotionArmorEffect extends ArmorEffectType {
         
-        // Check if there's a level specified
-        String[] parts = configString.split("@");
-        int level = 1; // Default level
-        String effectPart = configString;
+        // Extra ticks on top of the refresh interval so the effect never lapses between refreshes
+        private static final int DURATION_MARGIN = 20;
         
-        if (parts.length == 2) {
-            level = Integer.parseInt(parts[1]);
-            effectPart = parts[0];
-        } else if (parts.length > 2) {
-            throw new IllegalArgumentException("Invalid effect format: " + configString);
-        }
+        private final int amplifier;
+        private MobEffect mobEffect;
         
-        String[] categoryAndEffect = effectPart.split(":", 2);
+        public PotionArmorEffect(ResourceLocation effectId, int level) {
+            super(Category.POTION, effectId, level);
+            this.amplifier = Math.max(0, level - 1);
+        }
         
-        if (categoryAndEffect.length != 2) {
-            throw new IllegalArgumentException("Invalid effect format: " + configString);
+        /**
+         * Look the effect up once at config load, false if the id is not registered
+         */
+        public boolean resolve() {
+            mobEffect = BuiltInRegistries.MOB_EFFECT.get(effectId);
+            return mobEffect != null;
         }
         
-        String categoryStr = categoryAndEffect[0].toLowerCase();
-        String effectStr = categoryAndEffect[1];
+        public MobEffect getMobEffect() {
+            return mobEffect;
+        }
         
-        Category category = switch (categoryStr) {
-            case "potion" -> Category.POTION;
-            case "damage" -> Category.DAMAGE_REDUCTION;
-            case "enchant" -> Category.ENCHANTMENT;
-            case "attribute", "attr" -> Category.ATTRIBUTE;
-            default -> throw new IllegalArgumentException("Unknown category: " + categoryStr);
-        };
+        public int getAmplifier() {
+            return amplifier;
+        }
         
-        ResourceLocation effectId = ResourceLocation.tryParse(effectStr);
-        if (effectId == null) {
-            // Handle simple names like "fire_protection" -> "armoreffects:fire_protection"
-            effectId = ResourceLocation.fromNamespaceAndPath("armoreffects", effectStr);
+        @Override
+        public void applyEffect(ArmorEffectContext context) {
+            if (context.getPlayer() != null) {
+                apply(context.getPlayer());
+            }
         }
         
-        return switch (category) {
-            case POTION -> new PotionArmorEffect(effectId, level);
-            case DAMAGE_REDUCTION -> new DamageReductionArmorEffect(effectId, level);
-            case ENCHANTMENT -> new EnchantmentArmorEffect(effectId, level);
-            case ATTRIBUTE -> new AttributeArmorEffect(effectId, level);
-        };
-    }
-    
-    public static class PotionArmorEffect extends ArmorEffectType {
+        /**
+         * Refresh the effect on the wearer, used by the tick handler without building a context
+         */
+        public void apply(LivingEntity entity) {
+            if (mobEffect == null) return;
+            
+            // Our own instance that survives the next refresh needs no update,
+            // every addEffect on an existing effect sends an update packet
+            MobEffectInstance current = entity.getEffect(mobEffect);
+            if (current != null && isOwnInstance(current) && !current.endsWithin(getRefreshThreshold())) {
+                ArmorEffectMetrics.count(ArmorEffectMetrics.Counter.POTION_REFRESH_SKIPPED);
+                return;
+            }
+            
+            entity.addEffect(new MobEffectInstance(mobEffect, getDuration(), amplifier, true, false));
+            ArmorEffectMetrics.countApplication(Category.POTION);
+        }
         
-        public PotionArmorEffect(ResourceLocation effectId, int level) {
-            super(Category.POTION, effectId, level);
+        private boolean isOwnInstance(MobEffectInstance instance) {
+            return instance.getAmplifier() == amplifier && instance.isAmbient() && !instance.isVisible();
         }
         
-        @Override
-        public void applyEffect(ArmorEffectContext context) {
-            MobEffect mobEffect = BuiltInRegistries.MOB_EFFECT.get(effectId);
-            if (mobEffect != null && context.getPlayer() != null) {
-                context.getPlayer().addEffect(new net.minecraft.world.effect.MobEffectInstance(
-                    mobEffect, 60, Math.max(0, level - 1), true, false
-                ));
+        /**
+         * Give the wearer the effect until it is revoked, used in event mode.
+         * False if the wearer already has it, otherwise the caller records the grant.
+         */
+        public boolean grant(LivingEntity entity) {
+            if (mobEffect == null) return false;
+            
+            MobEffectInstance current = entity.getEffect(mobEffect);
+            if (current != null && current.isInfiniteDuration() && current.getAmplifier() == amplifier) {
+                return false;
             }
+            
+            MobEffectInstance instance = new MobEffectInstance(mobEffect, MobEffectInstance.INFINITE_DURATION, amplifier, true, false);
+            // Milk would otherwise strip it until the next sweep
+            instance.setCurativeItems(new ArrayList<>());
+            entity.addEffect(instance);
+            ArmorEffectMetrics.countApplication(Category.POTION);
+            return true;
+        }
+        
+        /**
+         * Applied duration, long enough that every other refresh can be skipped
+         */
+        public static int getDuration() {
+            return 2 * ArmorEffectsConfig.potionRefreshInterval + DURATION_MARGIN;
+        }
+        
+        /**
+         * Remaining ticks at or below which a refresh re-applies the effect
+         */
+        private static int getRefreshThreshold() {
+            return ArmorEffectsConfig.potionRefreshInterval + DURATION_MARGIN / 2;
         }
     }
     
     public static class DamageReductionArmorEffect extends ArmorEffectType {
         
+        private final int protectionBit;
+        private final float reductionAmount;
+        // Indexed by EquipmentSlot.getIndex() for armor slots, from the slot percentages of this config load
+        private final float[] reductionBySlot = new float[ARMOR_SLOTS.length];
+        
         public DamageReductionArmorEffect(ResourceLocation effectId, int level) {
             super(Category.DAMAGE_REDUCTION, effectId, level);
+            // Resolved against the protection types compiled from the same config load
+            this.protectionBit = DamageTypeMatcher.get().getBit(effectId.getPath());
+            this.reductionAmount = level / 100.0f; // Convert percentage to decimal
+            for (EquipmentSlot slot : ARMOR_SLOTS) {
+                reductionBySlot[slot.getIndex()] = (float) (getSlotMultiplier(slot) / 100.0); // 12% -> 0.12
+            }
         }
         
         @Override
         public void applyEffect(ArmorEffectContext context) {
             // This will be handled in the damage event handler
-            // The level represents percentage reduction
         }
         
-        public float getReductionAmount() {
-            return level / 100.0f; // Convert percentage to decimal
+        /**
+         * Reduction of a piece worn in the given armor slot, the slot's configured percentage.
+         * A null slot means the effect comes from a set bonus.
+         */
+        public float getReduction(EquipmentSlot slot) {
+            return slot != null ? reductionBySlot[slot.getIndex()] : reductionAmount;
+        }
+        
+        /**
+         * The protection kind bit this effect covers, 0 if the kind is not configured
+         */
+        public int getProtectionBit() {
+            return protectionBit;
+        }
+        
+        public boolean appliesTo(int damageMask) {
+            return (damageMask & protectionBit) != 0;
         }
         
         public boolean appliesTo(net.minecraft.world.damagesource.DamageSource damageSource) {
-            String effectType = effectId.getPath();
-            return switch (effectType) {
-                case "fire_protection" -> 
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.IN_FIRE) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.ON_FIRE) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.LAVA) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.HOT_FLOOR);
-                    
-                case "projectile_protection" ->
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.ARROW) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.TRIDENT) ||
-                    (damageSource.getDirectEntity() != null && 
-                     damageSource.getDirectEntity().getType().getCategory() == net.minecraft.world.entity.MobCategory.MISC);
-                     
-                case "blast_protection" ->
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.EXPLOSION) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.PLAYER_EXPLOSION) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.BAD_RESPAWN_POINT);
-                    
-                case "fall_protection" ->
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.FALL);
-                    
-                case "magic_protection" ->
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.MAGIC) ||
-                    damageSource.is(net.minecraft.world.damagesource.DamageTypes.INDIRECT_MAGIC);
-                    
-                case "general_protection" -> true; // Applies to all damage
-                    
-                default -> false;
-            };
+            return appliesTo(DamageTypeMatcher.get().getMask(damageSource));
         }
     }
     
     public static class EnchantmentArmorEffect extends ArmorEffectType {
         
+        private Enchantment enchantment;
+        
         public EnchantmentArmorEffect(ResourceLocation effectId, int level) {
             super(Category.ENCHANTMENT, effectId, level);
         }
         
+        /**
+         * Look up the enchantment once at config load, false if it is not registered
+         */
+        public boolean resolve() {
+            enchantment = BuiltInRegistries.ENCHANTMENT.get(effectId);
+            return enchantment != null;
+        }
+        
+        public Enchantment getEnchantment() {
+            return enchantment;
+        }
+        
         @Override
         public void applyEffect(ArmorEffectContext context) {
-            // Future implementation for enchantment effects
-            // This could add temporary enchantments or modify enchantment levels
+            // Virtual enchantments act when the wearer is hurt, see EnchantmentEventHandler
         }
     }
     
     public static class AttributeArmorEffect extends ArmorEffectType {
         
+        // Most significant half shared by every modifier this mod adds
+        public static final long MODIFIER_ID_PREFIX = 0xA0E0F0E07CE84030L;
+        
+        private Attribute attribute;
+        private final AttributeModifier[] modifiers = new AttributeModifier[ARMOR_SLOTS.length];
+        private AttributeModifier setModifier;
+        
         public AttributeArmorEffect(ResourceLocation effectId, int level) {
             super(Category.ATTRIBUTE, effectId, level);
         }
         
+        /**
+         * Build the modifier for every armor slot once at config load, false if the attribute is unknown.
+         * Ids already taken by other effects are skipped by salting the hash, so no two
+         * item, slot and effect combinations ever share a modifier.
+         */
+        public boolean resolve(ResourceLocation itemId, Set<UUID> usedIds) {
+            attribute = getAttributeForEffect(effectId.getPath());
+            if (attribute == null) return false;
+            
+            AttributeModifier.Operation operation = getOperationForEffect(effectId.getPath());
+            for (EquipmentSlot slot : ARMOR_SLOTS) {
+                if (getSlotMultiplier(slot) == 0) continue;
+                
+                UUID id = uniqueId(itemId + "/" + slot.getName() + "/" + effectId.getPath(), usedIds);
+                modifiers[slot.getIndex()] = createModifier(itemId, slot, id, operation);
+            }
+            return true;
+        }
+        
+        /**
+         * Build the modifiers under ids assigned by an earlier load, e.g. read back from the table cache.
+         * The ids are indexed like the armor slots, null where the slot gives no bonus.
+         */
+        public boolean restore(ResourceLocation itemId, UUID[] ids) {
+            attribute = getAttributeForEffect(effectId.getPath());
+            if (attribute == null) return false;
+            
+            AttributeModifier.Operation operation = getOperationForEffect(effectId.getPath());
+            for (EquipmentSlot slot : ARMOR_SLOTS) {
+                UUID id = ids[slot.getIndex()];
+                if (id != null) {
+                    modifiers[slot.getIndex()] = createModifier(itemId, slot, id, operation);
+                }
+            }
+            return true;
+        }
+        
+        private AttributeModifier createModifier(ResourceLocation itemId, EquipmentSlot slot, UUID id, AttributeModifier.Operation operation) {
+            double value = getSlotMultiplier(slot) / 100.0; // Convert percentage to decimal (12% -> 0.12)
+            String name = String.format("%s %s boost (%s)", itemId.getPath(), effectId.getPath().replace("_", " "), slot.getName());
+            return new AttributeModifier(id, name, value, operation);
+        }
+        
+        /**
+         * Build the single modifier of a set bonus, worth @level percent regardless of slot
+         */
+        public boolean resolveSetBonus(String setName, int pieces, Set<UUID> usedIds) {
+            attribute = getAttributeForEffect(effectId.getPath());
+            if (attribute == null) return false;
+            
+            UUID id = uniqueId("set/" + setName + "@" + pieces + "/" + effectId.getPath(), usedIds);
+            String name = String.format("%s set %s bonus (%d pieces)", setName, effectId.getPath().replace("_", " "), pieces);
+            setModifier = new AttributeModifier(id, name, level / 100.0, getOperationForEffect(effectId.getPath()));
+            return true;
+        }
+        
+        public Attribute getAttribute() {
+            return attribute;
+        }
+        
+        /**
+         * The precomputed modifier for an armor slot, null if the slot gives no bonus
+         */
+        public AttributeModifier getModifier(EquipmentSlot slot) {
+            return slot.getType() == EquipmentSlot.Type.ARMOR ? modifiers[slot.getIndex()] : null;
+        }
+        
+        /**
+         * Ids of the per-slot modifiers, indexed like the armor slots, null where the slot gives no bonus
+         */
+        public UUID[] getModifierIds() {
+            UUID[] ids = new UUID[modifiers.length];
+            for (int i = 0; i < modifiers.length; i++) {
+                ids[i] = modifiers[i] != null ? modifiers[i].getId() : null;
+            }
+            return ids;
+        }
+        
+        /**
+         * The modifier of a set bonus, null for per-item effects
+         */
+        public AttributeModifier getSetModifier() {
+            return setModifier;
+        }
+        
         @Override
         public void applyEffect(ArmorEffectContext context) {
             // Attribute effects are handled by AttributeArmorHandler
@@ -188,5 +360,71 @@ public abstract class ArmorEffectType {
         public String getEffectIdString() {
             return effectId.getPath();
         }
+        
+        /**
+         * Every attribute an effect can modify
+         */
+        public static List<Attribute> getSupportedAttributes() {
+            return List.of(Attributes.MOVEMENT_SPEED, Attributes.ATTACK_DAMAGE, Attributes.ATTACK_SPEED, Attributes.ARMOR,
+                Attributes.ARMOR_TOUGHNESS, Attributes.KNOCKBACK_RESISTANCE, Attributes.MAX_HEALTH);
+        }
+        
+        /**
+         * Whether the modifier was added by this mod, under the current or the old id format
+         */
+        public static boolean isOwnModifier(AttributeModifier modifier) {
+            return modifier.getId().getMostSignificantBits() == MODIFIER_ID_PREFIX;
+        }
+        
+        /**
+         * Get the Minecraft attribute that corresponds to an effect
+         */
+        private static Attribute getAttributeForEffect(String effectId) {
+            return switch (effectId) {
+                case "speed" -> Attributes.MOVEMENT_SPEED;
+                case "attack_damage" -> Attributes.ATTACK_DAMAGE;
+                case "attack_speed" -> Attributes.ATTACK_SPEED;
+                case "armor" -> Attributes.ARMOR;
+                case "armor_toughness" -> Attributes.ARMOR_TOUGHNESS;
+                case "knockback_resistance" -> Attributes.KNOCKBACK_RESISTANCE;
+                case "max_health" -> Attributes.MAX_HEALTH;
+                default -> null;
+            };
+        }
+        
+        /**
+         * Get the operation type for different effects
+         */
+        private static AttributeModifier.Operation getOperationForEffect(String effectId) {
+            return switch (effectId) {
+                case "speed", "attack_speed" -> AttributeModifier.Operation.MULTIPLY_BASE;
+                default -> AttributeModifier.Operation.ADDITION;
+            };
+        }
+        
+        private static UUID uniqueId(String key, Set<UUID> usedIds) {
+            UUID id = new UUID(MODIFIER_ID_PREFIX, hash64(key));
+            for (int salt = 1; !usedIds.add(id); salt++) {
+                id = new UUID(MODIFIER_ID_PREFIX, hash64(key + "#" + salt));
+            }
+            return id;
+        }
+        
+        /**
+         * 64-bit FNV-1a with a murmur finalizer, stable across runs since the ids end up in saved player data
+         */
+        private static long hash64(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb93e2aaa2ec1L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.armoreffects.system;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Non-player entities wearing armor that has effects.
+ * Entities join when they equip a registered item, so the many unarmored mobs never cost anything.
+ * Tracked entities are bucketed by their scheduler phase and only the bucket due this tick is visited.
+ */
+public class ArmorEntityTracker {
+    private static final Int2ObjectOpenHashMap<LivingEntity> TRACKED = new Int2ObjectOpenHashMap<>();
+    
+    private static List<List<LivingEntity>> buckets = new ArrayList<>();
+    private static int peakSize = 0;
+    
+    /**
+     * Start tracking the entity, false if the tracked set is already at its limit
+     */
+    public static boolean track(LivingEntity entity, int maxTracked) {
+        if (TRACKED.containsKey(entity.getId())) return true;
+        if (TRACKED.size() >= maxTracked) {
+            ArmorEffectMetrics.count(ArmorEffectMetrics.Counter.TRACKING_REJECTED);
+            return false;
+        }
+        
+        TRACKED.put(entity.getId(), entity);
+        peakSize = Math.max(peakSize, TRACKED.size());
+        if (!buckets.isEmpty()) {
+            buckets.get(ArmorEffectScheduler.phaseOf(entity.getId(), buckets.size())).add(entity);
+        }
+        return true;
+    }
+    
+    public static void untrack(Entity entity) {
+        if (TRACKED.remove(entity.getId()) != null && !buckets.isEmpty()) {
+            buckets.get(ArmorEffectScheduler.phaseOf(entity.getId(), buckets.size())).remove(entity);
+        }
+    }
+    
+    public static boolean isTracked(Entity entity) {
+        return TRACKED.containsKey(entity.getId());
+    }
+    
+    /**
+     * Run the task for every tracked entity whose phase falls on the current tick.
+     * Entities that were removed or no longer wear anything with effects are dropped.
+     */
+    public static void forEachDue(int interval, Consumer<LivingEntity> task) {
+        if (TRACKED.isEmpty()) return;
+        if (buckets.size() != Math.max(1, interval)) {
+            rebucket(Math.max(1, interval));
+        }
+        
+        List<LivingEntity> due = buckets.get(ArmorEffectScheduler.currentPhase(buckets.size()));
+        for (int i = due.size() - 1; i >= 0; i--) {
+            LivingEntity entity = due.get(i);
+            if (entity.isRemoved() || ArmorLoadoutCache.get(entity).isEmpty()) {
+                TRACKED.remove(entity.getId());
+                due.remove(i);
+                continue;
+            }
+            task.accept(entity);
+        }
+    }
+    
+    /**
+     * Run the task for every tracked entity regardless of phase
+     */
+    public static void forEach(Consumer<LivingEntity> task) {
+        for (LivingEntity entity : TRACKED.values()) {
+            task.accept(entity);
+        }
+    }
+    
+    private static void rebucket(int interval) {
+        buckets = new ArrayList<>(interval);
+        for (int i = 0; i < interval; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (LivingEntity entity : TRACKED.values()) {
+            buckets.get(ArmorEffectScheduler.phaseOf(entity.getId(), interval)).add(entity);
+        }
+    }
+    
+    public static int size() {
+        return TRACKED.size();
+    }
+    
+    public static int getPeakSize() {
+        return peakSize;
+    }
+    
+    public static void clear() {
+        TRACKED.clear();
+        buckets = new ArrayList<>();
+        peakSize = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+package com.armoreffects.system;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.world.damagesource.CombatRules;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.ArmorItem;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.enchantment.Enchantment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The armor effects an entity currently has equipped, resolved once per equipment change
+ * and grouped by category so the tick and hurt handlers only read flat arrays.
+ */
+public class ArmorLoadout {
+    private static final EquipmentSlot[] NO_SLOTS = new EquipmentSlot[0];
+    private static final ArmorEffectType[] NO_EFFECTS = new ArmorEffectType[0];
+    private static final Enchantment[] NO_ENCHANTMENTS = new Enchantment[0];
+    private static final int[] NO_LEVELS = new int[0];
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    
+    // Cap on the total reduction against one hit
+    public static final float MAX_REDUCTION = 0.8f;
+    
+    private final int generation;
+    private final ArmorEffectType.PotionArmorEffect[] potions;
+    private final ArmorEffectType.DamageReductionArmorEffect[] damageReductions;
+    private final int protectionMask;
+    // Summed reduction of every equipped piece, indexed by protection kind bit
+    private final float[] reductionByKind;
+    // 1 - capped reduction per kind, what a hit covered by a single kind is multiplied by
+    private final float[] multiplierByKind;
+    private final ArmorEffectType.AttributeArmorEffect[] attributes;
+    private final EquipmentSlot[] attributeSlots;
+    private final ArmorEffectType.AttributeArmorEffect[] setAttributes;
+    // Config-granted enchantments, one entry per piece like vanilla counts them
+    private final Enchantment[] virtualEnchantments;
+    private final int[] virtualLevels;
+    // Enchantments on the worn stacks, read once here instead of from NBT on every hit.
+    // Only collected when there are virtual enchantments to combine them with.
+    private final Enchantment[] wornEnchantments;
+    private final int[] wornLevels;
+    
+    private ArmorLoadout(int generation,
+                         ArmorEffectType.PotionArmorEffect[] potions,
+                         ArmorEffectType.DamageReductionArmorEffect[] damageReductions, EquipmentSlot[] damageSlots,
+                         ArmorEffectType.AttributeArmorEffect[] attributes, EquipmentSlot[] attributeSlots,
+                         ArmorEffectType.AttributeArmorEffect[] setAttributes,
+                         Enchantment[] virtualEnchantments, int[] virtualLevels,
+                         Enchantment[] wornEnchantments, int[] wornLevels) {
+        this.generation = generation;
+        this.potions = potions;
+        this.damageReductions = damageReductions;
+        int mask = 0;
+        for (ArmorEffectType.DamageReductionArmorEffect damage : damageReductions) {
+            mask |= damage.getProtectionBit();
+        }
+        this.protectionMask = mask;
+        this.reductionByKind = new float[Integer.SIZE - Integer.numberOfLeadingZeros(mask)];
+        for (int i = 0; i < damageReductions.length; i++) {
+            ArmorEffectType.DamageReductionArmorEffect damage = damageReductions[i];
+            if (damage.getProtectionBit() != 0) {
+                reductionByKind[Integer.numberOfTrailingZeros(damage.getProtectionBit())] += damage.getReduction(damageSlots[i]);
+            }
+        }
+        this.multiplierByKind = new float[reductionByKind.length];
+        for (int i = 0; i < reductionByKind.length; i++) {
+            multiplierByKind[i] = 1.0f - Math.min(reductionByKind[i], MAX_REDUCTION);
+        }
+        this.attributes = attributes;
+        this.attributeSlots = attributeSlots;
+        this.setAttributes = setAttributes;
+        this.virtualEnchantments = virtualEnchantments;
+        this.virtualLevels = virtualLevels;
+        this.wornEnchantments = wornEnchantments;
+        this.wornLevels = wornLevels;
+    }
+    
+    /**
+     * Resolve the registered effects of every armor piece the entity is wearing
+     */
+    public static ArmorLoadout build(LivingEntity entity) {
+        int generation = ArmorEffectRegistry.getGeneration();
+        ArmorEffectBundle[] bundles = new ArmorEffectBundle[ARMOR_SLOTS.length];
+        ItemStack[] stacks = new ItemStack[ARMOR_SLOTS.length];
+        Item[] items = new Item[ARMOR_SLOTS.length];
+        
+        for (int i = 0; i < ARMOR_SLOTS.length; i++) {
+            ItemStack armorPiece = entity.getItemBySlot(ARMOR_SLOTS[i]);
+            stacks[i] = armorPiece;
+            items[i] = armorPiece.getItem();
+            if (armorPiece.isEmpty() || !(armorPiece.getItem() instanceof ArmorItem)) {
+                bundles[i] = ArmorEffectBundle.EMPTY;
+            } else {
+                bundles[i] = ArmorEffectRegistry.getEffects(armorPiece.getItem());
+                ArmorEffectMetrics.count(bundles[i].isEmpty() ? ArmorEffectMetrics.Counter.REGISTRY_MISS : ArmorEffectMetrics.Counter.REGISTRY_HIT);
+            }
+        }
+        
+        ArmorSetTable sets = ArmorEffectRegistry.getSets();
+        if (sets.isEmpty()) {
+            return resolve(generation, ARMOR_SLOTS, bundles, NO_EFFECTS, stacks);
+        }
+        return resolve(generation, ARMOR_SLOTS, bundles, collectSetBonuses(sets, items), stacks);
+    }
+    
+    /**
+     * Effects of every set bonus reached by the worn items.
+     * Only the sets the worn items belong to are looked at.
+     */
+    public static ArmorEffectType[] collectSetBonuses(ArmorSetTable sets, Item[] items) {
+        IntArrayList worn = new IntArrayList();
+        for (Item item : items) {
+            worn.addElements(worn.size(), sets.getSets(item));
+        }
+        if (worn.isEmpty()) return NO_EFFECTS;
+        
+        List<ArmorEffectType> effects = new ArrayList<>();
+        for (int i = 0; i < worn.size(); i++) {
+            int set = worn.getInt(i);
+            if (worn.indexOf(set) != i) continue; // Counted at its first occurrence
+            
+            int pieces = 0;
+            for (int j = i; j < worn.size(); j++) {
+                if (worn.getInt(j) == set) pieces++;
+            }
+            
+            // Bonuses are sorted by the pieces they need
+            for (ArmorSetTable.SetBonus bonus : sets.getBonuses(set)) {
+                if (bonus.getPieces() > pieces) break;
+                effects.add(bonus.getEffect());
+            }
+        }
+        return effects.toArray(NO_EFFECTS);
+    }
+    
+    /**
+     * Combine the effect bundles worn in each slot into one loadout
+     */
+    public static ArmorLoadout resolve(int generation, EquipmentSlot[] slots, ArmorEffectBundle[] bundles) {
+        return resolve(generation, slots, bundles, NO_EFFECTS);
+    }
+    
+    /**
+     * Combine the effect bundles worn in each slot and the active set bonus effects into one loadout
+     */
+    public static ArmorLoadout resolve(int generation, EquipmentSlot[] slots, ArmorEffectBundle[] bundles,
+                                       ArmorEffectType[] setBonuses) {
+        return resolve(generation, slots, bundles, setBonuses, null);
+    }
+    
+    private static ArmorLoadout resolve(int generation, EquipmentSlot[] slots, ArmorEffectBundle[] bundles,
+                                        ArmorEffectType[] setBonuses, ItemStack[] stacks) {
+        List<ArmorEffectType.PotionArmorEffect> potions = new ArrayList<>();
+        List<ArmorEffectType.DamageReductionArmorEffect> damageReductions = new ArrayList<>();
+        List<EquipmentSlot> damageSlots = new ArrayList<>();
+        List<ArmorEffectType.AttributeArmorEffect> attributes = new ArrayList<>();
+        List<EquipmentSlot> attributeSlots = new ArrayList<>();
+        List<ArmorEffectType.EnchantmentArmorEffect> enchantments = new ArrayList<>();
+        
+        for (int i = 0; i < slots.length; i++) {
+            EquipmentSlot slot = slots[i];
+            ArmorEffectBundle bundle = bundles[i];
+            for (ArmorEffectType.PotionArmorEffect potion : bundle.getPotions()) {
+                potions.add(potion);
+            }
+            for (ArmorEffectType.DamageReductionArmorEffect damage : bundle.getDamageReductions()) {
+                damageReductions.add(damage);
+                damageSlots.add(slot);
+            }
+            for (ArmorEffectType.AttributeArmorEffect attribute : bundle.getAttributes()) {
+                attributes.add(attribute);
+                attributeSlots.add(slot);
+            }
+            for (ArmorEffectType.EnchantmentArmorEffect enchantment : bundle.getEnchantments()) {
+                enchantments.add(enchantment);
+            }
+        }
+        
+        // Set bonuses merge into the same arrays, the handlers do not tell them apart
+        List<ArmorEffectType.AttributeArmorEffect> setAttributes = new ArrayList<>();
+        for (ArmorEffectType effect : setBonuses) {
+            if (effect instanceof ArmorEffectType.PotionArmorEffect potion) {
+                potions.add(potion);
+            } else if (effect instanceof ArmorEffectType.DamageReductionArmorEffect damage) {
+                damageReductions.add(damage);
+                damageSlots.add(null); // Set bonuses are not worn in a slot
+            } else if (effect instanceof ArmorEffectType.AttributeArmorEffect attribute) {
+                setAttributes.add(attribute);
+            } else if (effect instanceof ArmorEffectType.EnchantmentArmorEffect enchantment) {
+                enchantments.add(enchantment);
+            }
+        }
+        
+        Enchantment[] virtualEnchantments = NO_ENCHANTMENTS;
+        int[] virtualLevels = NO_LEVELS;
+        Enchantment[] wornEnchantments = NO_ENCHANTMENTS;
+        int[] wornLevels = NO_LEVELS;
+        if (!enchantments.isEmpty()) {
+            virtualEnchantments = new Enchantment[enchantments.size()];
+            virtualLevels = new int[enchantments.size()];
+            for (int i = 0; i < virtualEnchantments.length; i++) {
+                virtualEnchantments[i] = enchantments.get(i).getEnchantment();
+                virtualLevels[i] = enchantments.get(i).getLevel();
+            }
+            
+            if (stacks != null) {
+                List<Enchantment> worn = new ArrayList<>();
+                IntArrayList levels = new IntArrayList();
+                for (ItemStack stack : stacks) {
+                    if (stack.isEmpty()) continue;
+                    for (Map.Entry<Enchantment, Integer> entry : stack.getAllEnchantments().entrySet()) {
+                        worn.add(entry.getKey());
+                        levels.add(entry.getValue().intValue());
+                    }
+                }
+                wornEnchantments = worn.toArray(NO_ENCHANTMENTS);
+                wornLevels = levels.toIntArray();
+            }
+        }
+        
+        return new ArmorLoadout(generation,
+            potions.toArray(new ArmorEffectType.PotionArmorEffect[0]),
+            damageReductions.toArray(new ArmorEffectType.DamageReductionArmorEffect[0]), damageSlots.toArray(NO_SLOTS),
+            attributes.toArray(new ArmorEffectType.AttributeArmorEffect[0]), attributeSlots.toArray(NO_SLOTS),
+            setAttributes.toArray(new ArmorEffectType.AttributeArmorEffect[0]),
+            virtualEnchantments, virtualLevels, wornEnchantments, wornLevels);
+    }
+    
+    /**
+     * Whether this loadout was resolved against the currently loaded registry
+     */
+    public boolean isCurrent() {
+        return generation == ArmorEffectRegistry.getGeneration();
+    }
+    
+    public ArmorEffectType.PotionArmorEffect[] getPotions() {
+        return potions;
+    }
+    
+    public ArmorEffectType.DamageReductionArmorEffect[] getDamageReductions() {
+        return damageReductions;
+    }
+    
+    /**
+     * Union of the protection kinds covered by the equipped damage reduction pieces
+     */
+    public int getProtectionMask() {
+        return protectionMask;
+    }
+    
+    /**
+     * Uncapped total reduction against damage covered by the given protection kinds.
+     * Visits only the kinds both sides share, usually one or two, and allocates nothing.
+     */
+    public float getReduction(int damageMask) {
+        int covered = damageMask & protectionMask;
+        float total = 0.0f;
+        while (covered != 0) {
+            total += reductionByKind[Integer.numberOfTrailingZeros(covered)];
+            covered &= covered - 1;
+        }
+        return total;
+    }
+    
+    /**
+     * What damage covered by the given protection kinds is multiplied by, 1 if nothing covers it.
+     * Damage covered by a single kind, the usual case, reads one precomputed factor.
+     */
+    public float getDamageMultiplier(int damageMask) {
+        int covered = damageMask & protectionMask;
+        if (covered == 0) return 1.0f;
+        if ((covered & (covered - 1)) == 0) {
+            return multiplierByKind[Integer.numberOfTrailingZeros(covered)];
+        }
+        // Several kinds cover this damage, their reductions add up under the same cap
+        return 1.0f - Math.min(getReduction(covered), MAX_REDUCTION);
+    }
+    
+    public ArmorEffectType.AttributeArmorEffect[] getAttributes() {
+        return attributes;
+    }
+    
+    public EquipmentSlot[] getAttributeSlots() {
+        return attributeSlots;
+    }
+    
+    /**
+     * Attribute effects of active set bonuses, applied through {@link ArmorEffectType.AttributeArmorEffect#getSetModifier()}
+     */
+    public ArmorEffectType.AttributeArmorEffect[] getSetAttributes() {
+        return setAttributes;
+    }
+    
+    public Enchantment[] getVirtualEnchantments() {
+        return virtualEnchantments;
+    }
+    
+    public int[] getVirtualEnchantmentLevels() {
+        return virtualLevels;
+    }
+    
+    /**
+     * Damage multiplier from virtual protection enchantments against this source, 1 if they add nothing.
+     * Virtual and worn protection share vanilla's cap; vanilla still applies the worn part
+     * itself afterwards, so the ratio of the two magic absorptions is returned.
+     * This is an approximation: it is applied in LivingHurtEvent, before armor absorption, which
+     * does not scale linearly with damage, so the final damage differs slightly from vanilla
+     * applying the combined levels.
+     */
+    public float getEnchantmentFactor(DamageSource source) {
+        int virtual = 0;
+        for (int i = 0; i < virtualEnchantments.length; i++) {
+            virtual += virtualEnchantments[i].getDamageProtection(virtualLevels[i], source);
+        }
+        if (virtual <= 0) return 1.0f;
+        
+        int worn = 0;
+        for (int i = 0; i < wornEnchantments.length; i++) {
+            worn += wornEnchantments[i].getDamageProtection(wornLevels[i], source);
+        }
+        return CombatRules.getDamageAfterMagicAbsorb(1.0f, worn + virtual) / CombatRules.getDamageAfterMagicAbsorb(1.0f, worn);
+    }
+    
+    public boolean isEmpty() {
+        return potions.length == 0 && damageReductions.length == 0 && attributes.length == 0 && setAttributes.length == 0
+            && virtualEnchantments.length == 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.armoreffects.system;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+
+/**
+ * Server-side cache of resolved loadouts keyed by entity id.
+ * Entries are dropped on equipment change and rebuilt lazily on the next read;
+ * a config reload makes every entry stale through the registry generation.
+ */
+public class ArmorLoadoutCache {
+    private static final Int2ObjectOpenHashMap<ArmorLoadout> LOADOUTS = new Int2ObjectOpenHashMap<>();
+    
+    public static ArmorLoadout get(LivingEntity entity) {
+        ArmorLoadout loadout = LOADOUTS.get(entity.getId());
+        if (loadout == null || !loadout.isCurrent()) {
+            ArmorEffectMetrics.count(ArmorEffectMetrics.Counter.LOADOUT_CACHE_MISS);
+            loadout = ArmorLoadout.build(entity);
+            LOADOUTS.put(entity.getId(), loadout);
+        } else {
+            ArmorEffectMetrics.count(ArmorEffectMetrics.Counter.LOADOUT_CACHE_HIT);
+        }
+        return loadout;
+    }
+    
+    public static void invalidate(Entity entity) {
+        LOADOUTS.remove(entity.getId());
+    }
+    
+    public static void clear() {
+        LOADOUTS.clear();
+    }
+    
+    public static int size() {
+        return LOADOUTS.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.armoreffects.system;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compiled armor sets and their piece-count bonuses.
+ * Each item maps to the sets it belongs to, so resolving a loadout only looks at the
+ * sets of the pieces actually worn, however many sets are configured.
+ */
+public class ArmorSetTable {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int[] NO_SETS = new int[0];
+    
+    public static final ArmorSetTable EMPTY = new ArmorSetTable(new String[0], new SetBonus[0][], new Reference2ObjectOpenHashMap<>());
+    
+    private final String[] names;
+    private final SetBonus[][] bonuses;
+    private final Reference2ObjectOpenHashMap<Item, int[]> setsByItem;
+    
+    private ArmorSetTable(String[] names, SetBonus[][] bonuses, Reference2ObjectOpenHashMap<Item, int[]> setsByItem) {
+        this.names = names;
+        this.bonuses = bonuses;
+        this.setsByItem = setsByItem;
+        setsByItem.defaultReturnValue(NO_SETS);
+    }
+    
+    /**
+     * Indices of the sets the item belongs to, empty if none
+     */
+    public int[] getSets(Item item) {
+        return setsByItem.get(item);
+    }
+    
+    /**
+     * Every item that belongs to at least one set
+     */
+    public Set<Item> getItems() {
+        return setsByItem.keySet();
+    }
+    
+    public String getName(int set) {
+        return names[set];
+    }
+    
+    /**
+     * Bonuses of the set, sorted by the number of pieces they need
+     */
+    public SetBonus[] getBonuses(int set) {
+        return bonuses[set];
+    }
+    
+    public int size() {
+        return names.length;
+    }
+    
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+    
+    /**
+     * Compile "name=item,item,..." set entries and "name@pieces+category:effect@level" bonus entries.
+     * Armor of disabled materials does not count towards any set.
+     */
+    public static ArmorSetTable compile(List<String> setEntries, List<String> bonusEntries, Set<UUID> modifierIds, Set<String> disabledMaterials) {
+        Object2IntOpenHashMap<String> indexByName = new Object2IntOpenHashMap<>();
+        indexByName.defaultReturnValue(-1);
+        List<String> names = new ArrayList<>();
+        Map<Item, IntArrayList> members = new Reference2ObjectOpenHashMap<>();
+        
+        for (String entry : setEntries) {
+            try {
+                parseSet(entry, indexByName, names, members, disabledMaterials);
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse armor set config entry: {}", entry, e);
+            }
+        }
+        
+        List<List<SetBonus>> bonusLists = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            bonusLists.add(new ArrayList<>());
+        }
+        for (String entry : bonusEntries) {
+            try {
+                parseBonus(entry, indexByName, bonusLists, modifierIds);
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse set bonus config entry: {}", entry, e);
+            }
+        }
+        
+        SetBonus[][] bonuses = new SetBonus[names.size()][];
+        for (int i = 0; i < bonuses.length; i++) {
+            bonuses[i] = bonusLists.get(i).stream()
+                .sorted(Comparator.comparingInt(SetBonus::getPieces))
+                .toArray(SetBonus[]::new);
+        }
+        
+        Reference2ObjectOpenHashMap<Item, int[]> setsByItem = new Reference2ObjectOpenHashMap<>(members.size());
+        members.forEach((item, sets) -> setsByItem.put(item, sets.toIntArray()));
+        
+        LOGGER.info("Loaded {} armor sets with {} bonuses from config", names.size(), bonusLists.stream().mapToInt(List::size).sum());
+        return new ArmorSetTable(names.toArray(new String[0]), bonuses, setsByItem);
+    }
+    
+    private static void parseSet(String entry, Object2IntOpenHashMap<String> indexByName, List<String> names,
+                                 Map<Item, IntArrayList> members, Set<String> disabledMaterials) {
+        // Format: "name=namespace:item,namespace:item,..."
+        // Example: "netherite=minecraft:netherite_helmet,minecraft:netherite_chestplate"
+        String[] parts = entry.split("=", 2);
+        if (parts.length != 2 || parts[0].isBlank()) {
+            throw new IllegalArgumentException("Invalid format, expected 'name=items': " + entry);
+        }
+        
+        String name = parts[0].trim();
+        if (indexByName.containsKey(name)) {
+            LOGGER.warn("Duplicate armor set {}, ignoring: {}", name, entry);
+            return;
+        }
+        int index = names.size();
+        indexByName.put(name, index);
+        names.add(name);
+        
+        for (String itemStr : parts[1].split(",")) {
+            itemStr = itemStr.trim();
+            if (itemStr.isEmpty()) continue;
+            
+            ResourceLocation itemLocation = ResourceLocation.tryParse(itemStr);
+            Item item = itemLocation != null ? BuiltInRegistries.ITEM.get(itemLocation) : null;
+            if (item == null || item == Items.AIR) {
+                LOGGER.warn("Unknown item {} in armor set {}, skipping", itemStr, name);
+                continue;
+            }
+            if (ArmorEffectCompiler.isMaterialDisabled(item, disabledMaterials)) continue;
+            
+            IntArrayList sets = members.computeIfAbsent(item, i -> new IntArrayList(1));
+            if (!sets.contains(index)) {
+                sets.add(index);
+            }
+        }
+    }
+    
+    private static void parseBonus(String entry, Object2IntOpenHashMap<String> indexByName, List<List<SetBonus>> bonusLists, Set<UUID> modifierIds) {
+        // Format: "name@pieces+category:effect_id@level"
+        // Example: "netherite@4+potion:minecraft:fire_resistance"
+        String[] parts = entry.split("\\+", 2);
+        String[] setAndPieces = parts[0].split("@", 2);
+        if (parts.length != 2 || setAndPieces.length != 2) {
+            throw new IllegalArgumentException("Invalid format, expected 'set@pieces+effect': " + entry);
+        }
+        
+        String name = setAndPieces[0].trim();
+        int set = indexByName.getInt(name);
+        if (set < 0) {
+            LOGGER.warn("Set bonus for unknown armor set {}, skipping: {}", name, entry);
+            return;
+        }
+        
+        int pieces = Integer.parseInt(setAndPieces[1].trim());
+        if (pieces < 1) {
+            throw new IllegalArgumentException("Piece count must be at least 1: " + entry);
+        }
+        
+        ArmorEffectType effect = ArmorEffectType.parse(parts[1].trim());
+        if (effect instanceof ArmorEffectType.PotionArmorEffect potionEffect && !potionEffect.resolve()) {
+            LOGGER.warn("Unknown potion effect {} in set bonus for {}, skipping", effect.getEffectId(), name);
+            return;
+        }
+        if (effect instanceof ArmorEffectType.EnchantmentArmorEffect enchantmentEffect && !enchantmentEffect.resolve()) {
+            LOGGER.warn("Unknown enchantment {} in set bonus for {}, skipping", effect.getEffectId(), name);
+            return;
+        }
+        if (effect instanceof ArmorEffectType.AttributeArmorEffect attributeEffect && !attributeEffect.resolveSetBonus(name, pieces, modifierIds)) {
+            LOGGER.warn("Unknown attribute {} in set bonus for {}, skipping", effect.getEffectId().getPath(), name);
+            return;
+        }
+        if (effect instanceof ArmorEffectType.DamageReductionArmorEffect damageEffect && damageEffect.getProtectionBit() == 0) {
+            LOGGER.warn("Unknown protection type {} in set bonus for {}, it will not reduce any damage", effect.getEffectId().getPath(), name);
+        }
+        
+        bonusLists.get(set).add(new SetBonus(pieces, effect));
+    }
+    
+    public static class SetBonus {
+        private final int pieces;
+        private final ArmorEffectType effect;
+        
+        private SetBonus(int pieces, ArmorEffectType effect) {
+            this.pieces = pieces;
+            this.effect = effect;
+        }
+        
+        /**
+         * Number of worn pieces of the set needed for this bonus
+         */
+        public int getPieces() {
+            return pieces;
+        }
+        
+        public ArmorEffectType getEffect() {
+            return effect;
+        }
+    }
+}
\ No newline at end of file
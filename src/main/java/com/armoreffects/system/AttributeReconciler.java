@@ -0,0 +1,228 @@
+package com.armoreffects.system;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.Attribute;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.AttributeModifier;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Coalesces attribute modifier updates from equipment changes.
+ * Entities are queued when their armor changes and reconciled once at the end of the tick:
+ * the modifiers their armor should give are diffed against the ones last applied, so a
+ * swap that ends where it started touches no attribute and several slot changes in
+ * one tick cost one pass.
+ */
+public class AttributeReconciler {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    
+    private static final ArrayDeque<LivingEntity> DIRTY = new ArrayDeque<>();
+    private static final Set<LivingEntity> DIRTY_SET = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final Int2ObjectOpenHashMap<List<AppliedModifier>> APPLIED = new Int2ObjectOpenHashMap<>();
+    
+    // Reused between entities, reconciliation only runs on the server thread
+    private static final List<AppliedModifier> desired = new ArrayList<>();
+    
+    // Since server start, not reset with the metrics
+    private static long staleRemoved = 0;
+    // By UUID, a player who logs in several times with stale modifiers counts once
+    private static final Set<UUID> staleEntities = new HashSet<>();
+    
+    private static boolean wasEnabled = true;
+    
+    /**
+     * True once when armor effects were switched on or off since the last call, e.g. by a config reload.
+     * Every wearer then needs a pass, to add its modifiers or to strip them.
+     */
+    public static boolean checkEnabledChanged() {
+        boolean enabled = ArmorEffectsConfig.enableArmorEffects;
+        if (enabled == wasEnabled) return false;
+        wasEnabled = enabled;
+        return true;
+    }
+    
+    public static void markDirty(LivingEntity entity) {
+        if (DIRTY_SET.add(entity)) {
+            DIRTY.addLast(entity);
+        }
+    }
+    
+    /**
+     * Bring every queued entity's modifiers in line with its armor
+     */
+    public static void reconcileDirty() {
+        while (!DIRTY.isEmpty()) {
+            LivingEntity entity = DIRTY.pollFirst();
+            DIRTY_SET.remove(entity);
+            if (entity.isRemoved()) {
+                APPLIED.remove(entity.getId());
+                continue;
+            }
+            
+            long start = ArmorEffectMetrics.start();
+            reconcile(entity);
+            ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.ATTRIBUTE_RECONCILE, start);
+        }
+    }
+    
+    /**
+     * Queue a full pass that starts from the modifiers the entity actually carries instead of the
+     * ones last applied, e.g. on login where they come from saved data that may predate the config
+     */
+    public static void resync(LivingEntity entity) {
+        APPLIED.remove(entity.getId());
+        markDirty(entity);
+    }
+    
+    private static void reconcile(LivingEntity entity) {
+        List<AppliedModifier> applied = APPLIED.get(entity.getId());
+        boolean firstPass = applied == null;
+        if (firstPass) {
+            // First pass for this entity, start from what it already carries, e.g. saved with the player
+            applied = findOwnModifiers(entity);
+            APPLIED.put(entity.getId(), applied);
+        }
+        
+        collectDesired(entity);
+        
+        int removed = 0;
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            AppliedModifier current = applied.get(i);
+            if (!contains(desired, current)) {
+                AttributeInstance instance = entity.getAttribute(current.attribute);
+                if (instance != null) {
+                    instance.removeModifier(current.modifier.getId());
+                }
+                applied.remove(i);
+                removed++;
+            }
+        }
+        if (firstPass && removed > 0) {
+            // Left behind by removed items, old configs or older versions of the mod
+            staleRemoved += removed;
+            staleEntities.add(entity.getUUID());
+            LOGGER.debug("Removed {} stale armor modifiers from {}", removed, entity.getName().getString());
+        }
+        
+        for (AppliedModifier wanted : desired) {
+            if (contains(applied, wanted)) continue;
+            
+            AttributeInstance instance = entity.getAttribute(wanted.attribute);
+            if (instance == null) continue;
+            
+            if (instance.getModifier(wanted.modifier.getId()) != null) {
+                // Same id with an older value, e.g. after the slot percentages changed
+                instance.removeModifier(wanted.modifier.getId());
+            }
+            instance.addPermanentModifier(wanted.modifier);
+            applied.add(wanted);
+            ArmorEffectMetrics.countApplication(ArmorEffectType.Category.ATTRIBUTE);
+        }
+        desired.clear();
+    }
+    
+    private static void collectDesired(LivingEntity entity) {
+        // With effects disabled nothing is wanted, so a pass only strips what is left
+        if (!ArmorEffectsConfig.enableArmorEffects) return;
+        
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            for (ArmorEffectType.AttributeArmorEffect effect : ArmorEffectRegistry.getEffects(entity.getItemBySlot(slot).getItem()).getAttributes()) {
+                AttributeModifier modifier = effect.getModifier(slot);
+                if (modifier != null) {
+                    desired.add(new AppliedModifier(effect.getAttribute(), modifier));
+                }
+            }
+        }
+        
+        // The loadout was invalidated by the equipment change, so this resolves the current sets
+        for (ArmorEffectType.AttributeArmorEffect effect : ArmorLoadoutCache.get(entity).getSetAttributes()) {
+            desired.add(new AppliedModifier(effect.getAttribute(), effect.getSetModifier()));
+        }
+    }
+    
+    private static List<AppliedModifier> findOwnModifiers(LivingEntity entity) {
+        List<AppliedModifier> found = new ArrayList<>();
+        for (Attribute attribute : ArmorEffectType.AttributeArmorEffect.getSupportedAttributes()) {
+            AttributeInstance instance = entity.getAttribute(attribute);
+            if (instance == null) continue;
+            
+            for (AttributeModifier modifier : instance.getModifiers()) {
+                if (ArmorEffectType.AttributeArmorEffect.isOwnModifier(modifier)) {
+                    found.add(new AppliedModifier(attribute, modifier));
+                }
+            }
+        }
+        return found;
+    }
+    
+    private static boolean contains(List<AppliedModifier> modifiers, AppliedModifier target) {
+        for (AppliedModifier modifier : modifiers) {
+            if (modifier.matches(target)) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Forget an entity that left the level, its modifiers stay on it and are found again if it returns
+     */
+    public static void forget(Entity entity) {
+        APPLIED.remove(entity.getId());
+    }
+    
+    /**
+     * Stale modifiers removed from entities since the server started
+     */
+    public static long getStaleRemovedCount() {
+        return staleRemoved;
+    }
+    
+    /**
+     * Distinct entities that carried at least one stale modifier since the server started
+     */
+    public static long getStaleEntityCount() {
+        return staleEntities.size();
+    }
+    
+    public static void clear() {
+        DIRTY.clear();
+        DIRTY_SET.clear();
+        APPLIED.clear();
+        staleRemoved = 0;
+        staleEntities.clear();
+        wasEnabled = true;
+    }
+    
+    private static class AppliedModifier {
+        private final Attribute attribute;
+        private final AttributeModifier modifier;
+        
+        private AppliedModifier(Attribute attribute, AttributeModifier modifier) {
+            this.attribute = attribute;
+            this.modifier = modifier;
+        }
+        
+        private boolean matches(AppliedModifier other) {
+            return attribute == other.attribute
+                && modifier.getId().equals(other.modifier.getId())
+                && modifier.getAmount() == other.modifier.getAmount()
+                && modifier.getOperation() == other.modifier.getOperation();
+        }
+    }
+}
\ No newline at end of file
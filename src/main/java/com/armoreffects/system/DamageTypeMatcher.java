@@ -0,0 +1,164 @@
+package com.armoreffects.system;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.damagesource.DamageType;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps damage types to a bitmask of protection kinds (fire_protection, fall_protection, ...).
+ * The selectors for each kind are compiled once at config load; the first hit of each
+ * damage type evaluates them and every later hit is a single map lookup.
+ */
+public class DamageTypeMatcher {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    
+    // Bit 31 is left unused so -1 can mark "not resolved yet"
+    public static final int MAX_KINDS = 31;
+    private static final int UNRESOLVED = -1;
+    
+    private static volatile DamageTypeMatcher current = new DamageTypeMatcher(List.of());
+    
+    private final Map<String, Integer> bitsByKind = new HashMap<>();
+    private final List<Kind> kinds;
+    private final Reference2IntOpenHashMap<DamageType> resolvedMasks = new Reference2IntOpenHashMap<>();
+    
+    private DamageTypeMatcher(List<Kind> kinds) {
+        this.kinds = kinds;
+        for (int i = 0; i < kinds.size(); i++) {
+            bitsByKind.put(kinds.get(i).name, 1 << i);
+        }
+        resolvedMasks.defaultReturnValue(UNRESOLVED);
+    }
+    
+    public static DamageTypeMatcher get() {
+        return current;
+    }
+    
+    /**
+     * Compile "kind=selector,selector" entries, where a selector is a damage type id,
+     * a damage type tag (#namespace:path) or * for every damage type
+     */
+    public static void loadFromConfig(List<String> configEntries) {
+        List<Kind> kinds = new ArrayList<>();
+        
+        for (String entry : configEntries) {
+            try {
+                Kind kind = parseKind(entry);
+                if (kinds.size() >= MAX_KINDS) {
+                    LOGGER.warn("Too many protection types (max {}), ignoring: {}", MAX_KINDS, entry);
+                } else if (kinds.stream().anyMatch(k -> k.name.equals(kind.name))) {
+                    LOGGER.warn("Duplicate protection type {}, ignoring: {}", kind.name, entry);
+                } else {
+                    kinds.add(kind);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to parse protection type config entry: {}", entry, e);
+            }
+        }
+        
+        current = new DamageTypeMatcher(kinds);
+        LOGGER.info("Loaded {} protection types from config", kinds.size());
+    }
+    
+    private static Kind parseKind(String entry) {
+        // Format: "kind=selector,selector,..."
+        // Example: "fire_protection=minecraft:in_fire,#minecraft:is_fire"
+        String[] parts = entry.split("=", 2);
+        if (parts.length != 2 || parts[0].isBlank()) {
+            throw new IllegalArgumentException("Invalid format, expected 'kind=selectors': " + entry);
+        }
+        
+        Kind kind = new Kind(parts[0].trim());
+        for (String selector : parts[1].split(",")) {
+            selector = selector.trim();
+            if (selector.isEmpty()) continue;
+            
+            if (selector.equals("*")) {
+                kind.matchAll = true;
+            } else if (selector.startsWith("#")) {
+                ResourceLocation tagId = ResourceLocation.tryParse(selector.substring(1));
+                if (tagId == null) {
+                    throw new IllegalArgumentException("Invalid damage type tag: " + selector);
+                }
+                kind.tags.add(TagKey.create(Registries.DAMAGE_TYPE, tagId));
+            } else {
+                ResourceLocation typeId = ResourceLocation.tryParse(selector);
+                if (typeId == null) {
+                    throw new IllegalArgumentException("Invalid damage type: " + selector);
+                }
+                kind.types.add(typeId);
+            }
+        }
+        return kind;
+    }
+    
+    /**
+     * The bit for a protection kind, or 0 if the kind is not configured
+     */
+    public int getBit(String kindName) {
+        return bitsByKind.getOrDefault(kindName, 0);
+    }
+    
+    /**
+     * The protection kinds that cover this damage source
+     */
+    public int getMask(DamageSource damageSource) {
+        DamageType type = damageSource.type();
+        int mask = resolvedMasks.getInt(type);
+        if (mask == UNRESOLVED) {
+            mask = resolve(damageSource.typeHolder());
+            resolvedMasks.put(type, mask);
+        }
+        return mask;
+    }
+    
+    private int resolve(Holder<DamageType> holder) {
+        int mask = 0;
+        for (int i = 0; i < kinds.size(); i++) {
+            if (kinds.get(i).matches(holder)) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * Forget resolved damage types, e.g. after tags were reloaded or the world changed
+     */
+    public void invalidate() {
+        resolvedMasks.clear();
+    }
+    
+    private static class Kind {
+        private final String name;
+        private final List<ResourceLocation> types = new ArrayList<>();
+        private final List<TagKey<DamageType>> tags = new ArrayList<>();
+        private boolean matchAll = false;
+        
+        private Kind(String name) {
+            this.name = name;
+        }
+        
+        private boolean matches(Holder<DamageType> holder) {
+            if (matchAll) return true;
+            for (ResourceLocation type : types) {
+                if (holder.is(type)) return true;
+            }
+            for (TagKey<DamageType> tag : tags) {
+                if (holder.is(tag)) return true;
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
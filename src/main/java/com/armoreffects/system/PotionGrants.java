@@ -0,0 +1,165 @@
+package com.armoreffects.system;
+
+import com.armoreffects.config.ArmorEffectsConfig;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.entity.LivingEntity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Potion effects in event mode (potion_mode = EVENT).
+ * Armor potions are granted once with infinite duration and revoked when the loadout no longer
+ * gives them, so a wearer whose armor does not change costs nothing per tick. Entities are queued
+ * when something may have changed their grants and reconciled once at the end of the tick.
+ * What was granted is recorded in the entity's persistent data, so effects of the same shape
+ * from other mods or datapacks are never touched.
+ */
+public class PotionGrants {
+    private static final ArmorEffectType.PotionArmorEffect[] NONE = new ArmorEffectType.PotionArmorEffect[0];
+    // Effect id to granted amplifier, saved with the entity
+    private static final String GRANTS_TAG = "armoreffects_grants";
+    
+    private static final ArrayDeque<LivingEntity> DIRTY = new ArrayDeque<>();
+    private static final Set<LivingEntity> DIRTY_SET = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    // Reused between entities, reconciliation only runs on the server thread
+    private static final List<String> stale = new ArrayList<>();
+    
+    private static boolean wasGranting = false;
+    
+    public static boolean isEventMode() {
+        return ArmorEffectsConfig.potionMode == ArmorEffectsConfig.PotionMode.EVENT;
+    }
+    
+    private static boolean isGranting() {
+        return isEventMode() && ArmorEffectsConfig.enableArmorEffects;
+    }
+    
+    /**
+     * True once when grants were switched on or off since the last call, e.g. by a config reload.
+     * Every wearer then needs a pass, to grant or to strip what is left.
+     */
+    public static boolean checkModeChanged() {
+        boolean granting = isGranting();
+        if (granting == wasGranting) return false;
+        wasGranting = granting;
+        return true;
+    }
+    
+    public static void markDirty(LivingEntity entity) {
+        if (DIRTY_SET.add(entity)) {
+            DIRTY.addLast(entity);
+        }
+    }
+    
+    /**
+     * Whether the entity still holds effects granted in event mode, e.g. from before a switch back to refresh mode
+     */
+    public static boolean hasGrants(LivingEntity entity) {
+        return entity.getPersistentData().contains(GRANTS_TAG, Tag.TAG_COMPOUND);
+    }
+    
+    /**
+     * Bring every queued entity's granted effects in line with its armor
+     */
+    public static void reconcileDirty() {
+        while (!DIRTY.isEmpty()) {
+            LivingEntity entity = DIRTY.pollFirst();
+            DIRTY_SET.remove(entity);
+            if (entity.isRemoved()) continue;
+            
+            long start = ArmorEffectMetrics.start();
+            reconcile(entity);
+            ArmorEffectMetrics.stop(ArmorEffectMetrics.Timer.POTION_RECONCILE, start);
+        }
+    }
+    
+    /**
+     * Grant what the loadout gives and revoke the rest, or only revoke outside event mode
+     */
+    public static void reconcile(LivingEntity entity) {
+        reconcile(entity, isGranting() ? ArmorLoadoutCache.get(entity).getPotions() : NONE);
+    }
+    
+    /**
+     * Remove every granted effect, e.g. when the wearer dies
+     */
+    public static void revokeAll(LivingEntity entity) {
+        reconcile(entity, NONE);
+    }
+    
+    private static void reconcile(LivingEntity entity, ArmorEffectType.PotionArmorEffect[] potions) {
+        CompoundTag data = entity.getPersistentData();
+        if (data.contains(GRANTS_TAG, Tag.TAG_COMPOUND)) {
+            CompoundTag grants = data.getCompound(GRANTS_TAG);
+            for (String key : grants.getAllKeys()) {
+                ResourceLocation id = ResourceLocation.tryParse(key);
+                MobEffect effect = id != null ? BuiltInRegistries.MOB_EFFECT.get(id) : null;
+                int amplifier = grants.getInt(key);
+                if (effect == null || strongest(potions, effect) != amplifier) {
+                    revoke(entity, effect, amplifier);
+                    stale.add(key);
+                }
+            }
+            for (String key : stale) {
+                grants.remove(key);
+            }
+            stale.clear();
+            if (grants.isEmpty()) {
+                data.remove(GRANTS_TAG);
+            }
+        }
+        
+        for (ArmorEffectType.PotionArmorEffect potion : potions) {
+            // Only the strongest level of an effect is granted, a weaker infinite one would linger under it
+            MobEffect effect = potion.getMobEffect();
+            if (effect != null && strongest(potions, effect) == potion.getAmplifier() && potion.grant(entity)) {
+                if (!data.contains(GRANTS_TAG, Tag.TAG_COMPOUND)) {
+                    data.put(GRANTS_TAG, new CompoundTag());
+                }
+                data.getCompound(GRANTS_TAG).putInt(potion.getEffectId().toString(), potion.getAmplifier());
+            }
+        }
+    }
+    
+    /**
+     * Remove the effect only while it is still the instance that was granted,
+     * anything that replaced it since belongs to someone else
+     */
+    private static void revoke(LivingEntity entity, MobEffect effect, int amplifier) {
+        if (effect == null) return;
+        MobEffectInstance current = entity.getEffect(effect);
+        if (current != null && current.isInfiniteDuration() && current.getAmplifier() == amplifier) {
+            entity.removeEffect(effect);
+        }
+    }
+    
+    /**
+     * Highest amplifier the loadout gives for the effect, -1 if none
+     */
+    private static int strongest(ArmorEffectType.PotionArmorEffect[] potions, MobEffect effect) {
+        int amplifier = -1;
+        for (ArmorEffectType.PotionArmorEffect potion : potions) {
+            if (potion.getMobEffect() == effect) {
+                amplifier = Math.max(amplifier, potion.getAmplifier());
+            }
+        }
+        return amplifier;
+    }
+    
+    public static void clear() {
+        DIRTY.clear();
+        DIRTY_SET.clear();
+        wasGranting = false;
+    }
+}
\ No newline at end of file
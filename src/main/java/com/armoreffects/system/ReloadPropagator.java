@@ -0,0 +1,206 @@
+package com.armoreffects.system;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.AttributeModifier;
+import net.minecraft.world.item.Item;
+import net.minecraftforge.server.ServerLifecycleHooks;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Carries a config reload over to entities already wearing armor.
+ * Damage and enchantment effects are read through the loadout cache and follow the new table
+ * on their own, but attribute modifiers and granted potions were applied once and stay until
+ * something re-evaluates them. The old and new tables are diffed per item and only entities
+ * wearing an item whose applied effects changed are queued, a bounded number per tick.
+ */
+public class ReloadPropagator {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+    
+    // Filled by the thread that reloaded the config, drained on the server thread
+    private static final ConcurrentLinkedQueue<Set<Item>> SUBMITTED = new ConcurrentLinkedQueue<>();
+    
+    private static final ReferenceOpenHashSet<Item> changed = new ReferenceOpenHashSet<>();
+    private static final ArrayDeque<LivingEntity> pending = new ArrayDeque<>();
+    // Entities re-evaluated by the current walk
+    private static int requeued;
+    
+    /**
+     * Diff the tables of two loads and hand the changed items to the server thread
+     */
+    public static void submit(Map<Item, ArmorEffectBundle> oldEffects, ArmorSetTable oldSets,
+                              Map<Item, ArmorEffectBundle> newEffects, ArmorSetTable newSets) {
+        Set<Item> items = diff(oldEffects, oldSets, newEffects, newSets);
+        if (!items.isEmpty()) {
+            LOGGER.debug("Config load changed the applied effects of {} items", items.size());
+            SUBMITTED.add(items);
+        }
+    }
+    
+    /**
+     * Items whose attribute or potion effects differ between the two loads, directly or through a set
+     */
+    public static Set<Item> diff(Map<Item, ArmorEffectBundle> oldEffects, ArmorSetTable oldSets,
+                                 Map<Item, ArmorEffectBundle> newEffects, ArmorSetTable newSets) {
+        ReferenceOpenHashSet<Item> items = new ReferenceOpenHashSet<>();
+        for (Map.Entry<Item, ArmorEffectBundle> entry : oldEffects.entrySet()) {
+            if (!sameBundle(entry.getValue(), newEffects.getOrDefault(entry.getKey(), ArmorEffectBundle.EMPTY))) {
+                items.add(entry.getKey());
+            }
+        }
+        for (Map.Entry<Item, ArmorEffectBundle> entry : newEffects.entrySet()) {
+            if (!oldEffects.containsKey(entry.getKey()) && !sameBundle(ArmorEffectBundle.EMPTY, entry.getValue())) {
+                items.add(entry.getKey());
+            }
+        }
+        
+        for (Item item : oldSets.getItems()) {
+            if (!sameSets(item, oldSets, newSets)) items.add(item);
+        }
+        for (Item item : newSets.getItems()) {
+            if (!sameSets(item, oldSets, newSets)) items.add(item);
+        }
+        return items;
+    }
+    
+    /**
+     * Queue entities wearing changed items after a reload, and re-evaluate up to maxPerTick of them
+     * (0 or less means unlimited). Runs on the server thread.
+     */
+    public static void tick(int maxPerTick) {
+        Set<Item> items;
+        boolean submitted = false;
+        while ((items = SUBMITTED.poll()) != null) {
+            changed.addAll(items);
+            submitted = true;
+        }
+        if (submitted) {
+            // A reload during a walk restarts it with both diffs, nothing queued is lost
+            pending.clear();
+            requeued = 0;
+            MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+            if (server != null) {
+                pending.addAll(server.getPlayerList().getPlayers());
+            }
+            ArmorEntityTracker.forEach(pending::addLast);
+            if (pending.isEmpty()) {
+                // Nobody online, entities loaded later apply the current table on their own
+                changed.clear();
+                return;
+            }
+        }
+        if (pending.isEmpty()) return;
+        
+        // Checking what an entity wears is cheap, only the entities that need work count towards the budget
+        int budget = maxPerTick > 0 ? maxPerTick : Integer.MAX_VALUE;
+        while (budget > 0 && !pending.isEmpty()) {
+            LivingEntity entity = pending.pollFirst();
+            if (entity.isRemoved() || !wearsChanged(entity)) continue;
+            
+            AttributeReconciler.markDirty(entity);
+            if (PotionGrants.isEventMode()) {
+                PotionGrants.markDirty(entity);
+            }
+            ArmorEffectMetrics.count(ArmorEffectMetrics.Counter.RELOAD_REAPPLIED);
+            requeued++;
+            budget--;
+        }
+        if (pending.isEmpty()) {
+            LOGGER.info("Re-applied changed armor effects to {} entities after a config reload", requeued);
+            changed.clear();
+        }
+    }
+    
+    /**
+     * Entities still waiting to be checked after the last reload
+     */
+    public static int getPendingCount() {
+        return pending.size();
+    }
+    
+    private static boolean wearsChanged(LivingEntity entity) {
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            if (changed.contains(entity.getItemBySlot(slot).getItem())) return true;
+        }
+        return false;
+    }
+    
+    private static boolean sameBundle(ArmorEffectBundle a, ArmorEffectBundle b) {
+        return sameEffects(a.getAttributes(), b.getAttributes()) && sameEffects(a.getPotions(), b.getPotions());
+    }
+    
+    private static boolean sameSets(Item item, ArmorSetTable a, ArmorSetTable b) {
+        int[] setsA = a.getSets(item);
+        int[] setsB = b.getSets(item);
+        if (setsA.length != setsB.length) return false;
+        
+        for (int i = 0; i < setsA.length; i++) {
+            if (!a.getName(setsA[i]).equals(b.getName(setsB[i]))) return false;
+            
+            ArmorSetTable.SetBonus[] bonusesA = a.getBonuses(setsA[i]);
+            ArmorSetTable.SetBonus[] bonusesB = b.getBonuses(setsB[i]);
+            if (bonusesA.length != bonusesB.length) return false;
+            for (int j = 0; j < bonusesA.length; j++) {
+                if (bonusesA[j].getPieces() != bonusesB[j].getPieces()
+                        || !sameEffect(bonusesA[j].getEffect(), bonusesB[j].getEffect())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean sameEffects(ArmorEffectType[] a, ArmorEffectType[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!sameEffect(a[i], b[i])) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Whether two effects leave the same applied state on the wearer
+     */
+    private static boolean sameEffect(ArmorEffectType a, ArmorEffectType b) {
+        if (a.getCategory() != b.getCategory()) return false;
+        
+        if (a instanceof ArmorEffectType.AttributeArmorEffect attributeA && b instanceof ArmorEffectType.AttributeArmorEffect attributeB) {
+            if (attributeA.getAttribute() != attributeB.getAttribute()
+                    || !sameModifier(attributeA.getSetModifier(), attributeB.getSetModifier())) {
+                return false;
+            }
+            for (EquipmentSlot slot : ARMOR_SLOTS) {
+                if (!sameModifier(attributeA.getModifier(slot), attributeB.getModifier(slot))) return false;
+            }
+            return true;
+        }
+        if (a instanceof ArmorEffectType.PotionArmorEffect potionA && b instanceof ArmorEffectType.PotionArmorEffect potionB) {
+            return potionA.getMobEffect() == potionB.getMobEffect() && potionA.getAmplifier() == potionB.getAmplifier();
+        }
+        // Damage and enchantment effects are read from the current table when they act
+        return true;
+    }
+    
+    private static boolean sameModifier(AttributeModifier a, AttributeModifier b) {
+        if (a == null || b == null) return a == b;
+        return a.getId().equals(b.getId()) && a.getAmount() == b.getAmount() && a.getOperation() == b.getOperation();
+    }
+    
+    public static void clear() {
+        SUBMITTED.clear();
+        changed.clear();
+        pending.clear();
+        requeued = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.armoreffects.system;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArmorEffectCompilerTest {
+    private static final Map<ResourceLocation, Item> ITEMS = StandIns.items(
+        "minecraft:iron_helmet",
+        "minecraft:iron_boots",
+        "minecraft:bootstrap",
+        "othermod:steel_boots",
+        "othermod:boots_rack"
+    );
+    
+    @BeforeAll
+    static void loadProtectionTypes() {
+        StandIns.loadProtectionTypes();
+    }
+    
+    private static ArmorEffectCompiler.Result compile(String... entries) {
+        return ArmorEffectCompiler.compile(List.of(entries), StandIns.lookup(ITEMS));
+    }
+    
+    private static Item item(String id) {
+        return ITEMS.get(new ResourceLocation(id));
+    }
+    
+    private static void assertDiagnostic(ArmorEffectCompiler.Diagnostic diagnostic, int line, String entry,
+                                         ArmorEffectCompiler.Severity severity, String reason) {
+        assertEquals(line, diagnostic.getLine());
+        assertEquals(entry, diagnostic.getEntry());
+        assertEquals(severity, diagnostic.getSeverity());
+        assertEquals(reason, diagnostic.getReason());
+    }
+    
+    @Test
+    void reportsEachBadEntryWithItsPosition() {
+        ArmorEffectCompiler.Result result = compile(
+            "minecraft:iron_helmet",
+            "minecraft:iron_helmet+damage:fire_protection",
+            "minecraft:iron_helmet+heal:minecraft:regeneration",
+            "minecraft:iron_boots+damage:fall_protection@x",
+            "minecraft:iron_boots+damage:fall_protection@256",
+            "Iron Boots+damage:fall_protection",
+            "minecraft:gold_boots+damage:fall_protection"
+        );
+        
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = result.getDiagnostics();
+        assertEquals(6, diagnostics.size());
+        assertDiagnostic(diagnostics.get(0), 1, "minecraft:iron_helmet",
+            ArmorEffectCompiler.Severity.ERROR, "expected 'item+effect'");
+        assertDiagnostic(diagnostics.get(1), 3, "minecraft:iron_helmet+heal:minecraft:regeneration",
+            ArmorEffectCompiler.Severity.ERROR, "unknown category 'heal', expected potion, damage, enchant or attribute");
+        assertDiagnostic(diagnostics.get(2), 4, "minecraft:iron_boots+damage:fall_protection@x",
+            ArmorEffectCompiler.Severity.ERROR, "level must be a number from 1 to 255 in 'damage:fall_protection@x'");
+        assertDiagnostic(diagnostics.get(3), 5, "minecraft:iron_boots+damage:fall_protection@256",
+            ArmorEffectCompiler.Severity.ERROR, "level must be a number from 1 to 255 in 'damage:fall_protection@256'");
+        assertDiagnostic(diagnostics.get(4), 6, "Iron Boots+damage:fall_protection",
+            ArmorEffectCompiler.Severity.ERROR, "invalid item id 'Iron Boots'");
+        assertDiagnostic(diagnostics.get(5), 7, "minecraft:gold_boots+damage:fall_protection",
+            ArmorEffectCompiler.Severity.ERROR, "unknown item minecraft:gold_boots");
+        
+        // Only the valid entry is loaded
+        assertEquals(1, result.getEffectCount());
+        assertEquals(1, result.getEffects().get(item("minecraft:iron_helmet")).size());
+        assertNull(result.getEffects().get(item("minecraft:iron_boots")));
+    }
+    
+    @Test
+    void warnsAboutEntriesThatLoadButDoNothing() {
+        ArmorEffectCompiler.Result result = compile(
+            "minecraft:iron_helmet+damage:frost_protection",
+            "minecraft:iron_boots+damage:fall_protection",
+            "minecraft:iron_boots+damage:fall_protection",
+            "othermod:*_leggings+damage:fall_protection",
+            "minecraft:iron_helmet+damage:fire_protection@3"
+        );
+        
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = result.getDiagnostics();
+        assertEquals(4, diagnostics.size());
+        assertDiagnostic(diagnostics.get(0), 1, "minecraft:iron_helmet+damage:frost_protection",
+            ArmorEffectCompiler.Severity.WARNING, "unknown protection type frost_protection, it will not reduce any damage");
+        assertDiagnostic(diagnostics.get(1), 3, "minecraft:iron_boots+damage:fall_protection",
+            ArmorEffectCompiler.Severity.WARNING, "duplicate effect minecraft:fall_protection, replaces an earlier entry");
+        assertDiagnostic(diagnostics.get(2), 4, "othermod:*_leggings+damage:fall_protection",
+            ArmorEffectCompiler.Severity.WARNING, "selector othermod:*_leggings matched no items");
+        assertDiagnostic(diagnostics.get(3), 5, "minecraft:iron_helmet+damage:fire_protection@3",
+            ArmorEffectCompiler.Severity.WARNING, "level is ignored, each piece reduces damage by its slot percentage");
+        assertEquals(0, result.count(ArmorEffectCompiler.Severity.ERROR));
+    }
+    
+    @Test
+    void rejectsInvalidSelectors() {
+        ArmorEffectCompiler.Result result = compile(
+            ":*_boots+damage:fall_protection",
+            "Other Mod:*_boots+damage:fall_protection"
+        );
+        
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = result.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+        assertDiagnostic(diagnostics.get(0), 1, ":*_boots+damage:fall_protection",
+            ArmorEffectCompiler.Severity.ERROR, "invalid item selector ':*_boots'");
+        assertDiagnostic(diagnostics.get(1), 2, "Other Mod:*_boots+damage:fall_protection",
+            ArmorEffectCompiler.Severity.ERROR, "invalid item selector 'Other Mod:*_boots'");
+    }
+    
+    @Test
+    void globSelectorsMatchAcrossNamespaces() {
+        ArmorEffectCompiler.Result result = compile("*:*_boots+damage:fall_protection");
+        
+        assertTrue(result.getDiagnostics().isEmpty());
+        assertNotNull(result.getEffects().get(item("minecraft:iron_boots")));
+        assertNotNull(result.getEffects().get(item("othermod:steel_boots")));
+        assertNull(result.getEffects().get(item("minecraft:bootstrap")));
+        assertNull(result.getEffects().get(item("othermod:boots_rack")));
+        assertNull(result.getEffects().get(item("minecraft:iron_helmet")));
+    }
+    
+    @Test
+    void selectorsNeverReplaceExplicitEntries() {
+        ArmorEffectCompiler.Result result = compile(
+            "minecraft:iron_boots+damage:fall_protection",
+            "*:*_boots+damage:fall_protection",
+            "*:*_boots+damage:fire_protection"
+        );
+        
+        assertTrue(result.getDiagnostics().isEmpty());
+        ArmorEffectType[] explicit = result.getEffects().get(item("minecraft:iron_boots")).getEffects();
+        ArmorEffectType[] selected = result.getEffects().get(item("othermod:steel_boots")).getEffects();
+        assertNotSame(selected[0], explicit[0]);
+        // Other effects of the same selector still apply
+        assertSame(selected[1], explicit[1]);
+    }
+    
+    @Test
+    void globWithoutStarsMatchesExactly() {
+        assertTrue(ArmorEffectCompiler.globMatches("iron_boots", "iron_boots"));
+        assertFalse(ArmorEffectCompiler.globMatches("iron_boots", "iron_boots_2"));
+        assertFalse(ArmorEffectCompiler.globMatches("iron_boots", ""));
+    }
+    
+    @Test
+    void globPrefixAndSuffixDoNotOverlap() {
+        assertFalse(ArmorEffectCompiler.globMatches("a*a", "a"));
+        assertTrue(ArmorEffectCompiler.globMatches("a*a", "aa"));
+        assertTrue(ArmorEffectCompiler.globMatches("a*a", "aba"));
+        assertFalse(ArmorEffectCompiler.globMatches("ab*ba", "aba"));
+    }
+    
+    @Test
+    void globWithSeveralStarsMatchesLiteralsInOrder() {
+        assertTrue(ArmorEffectCompiler.globMatches("*", ""));
+        assertTrue(ArmorEffectCompiler.globMatches("**", "anything"));
+        assertTrue(ArmorEffectCompiler.globMatches("a**b", "ab"));
+        assertTrue(ArmorEffectCompiler.globMatches("*_*_boots", "iron_heavy_boots"));
+        assertFalse(ArmorEffectCompiler.globMatches("*_*_boots", "iron_boots"));
+        assertTrue(ArmorEffectCompiler.globMatches("*a*b*c*", "xaybzc"));
+        assertFalse(ArmorEffectCompiler.globMatches("*a*b*c*", "xcybza"));
+        // A middle literal may not reuse characters of the suffix
+        assertFalse(ArmorEffectCompiler.globMatches("*boots*boots", "boots"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.armoreffects.system;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ArmorEffectTableCacheTest {
+    private static final long KEY = 0x1234_5678_9ABC_DEF0L;
+    private static final Map<ResourceLocation, Item> ITEMS = StandIns.items(
+        "minecraft:iron_helmet",
+        "minecraft:iron_boots",
+        "othermod:steel_boots"
+    );
+    private static final List<Item> IDS = new ArrayList<>(ITEMS.values());
+    private static final List<ResourceLocation> KEYS = new ArrayList<>(ITEMS.keySet());
+    
+    /**
+     * Items numbered in the order they were listed, like registry ids
+     */
+    private static final ArmorEffectTableCache.ItemIds ITEM_IDS = new ArmorEffectTableCache.ItemIds() {
+        @Override
+        public int idOf(Item item) {
+            return IDS.indexOf(item);
+        }
+        
+        @Override
+        public Item byId(int id) {
+            return IDS.get(id);
+        }
+        
+        @Override
+        public ResourceLocation keyOf(Item item) {
+            return KEYS.get(IDS.indexOf(item));
+        }
+    };
+    
+    @BeforeAll
+    static void loadProtectionTypes() {
+        StandIns.loadProtectionTypes();
+    }
+    
+    private static Item item(String id) {
+        return ITEMS.get(new ResourceLocation(id));
+    }
+    
+    private static ArmorEffectCompiler.Result compile(String... entries) {
+        return ArmorEffectCompiler.compile(List.of(entries), StandIns.lookup(ITEMS));
+    }
+    
+    @Test
+    void roundTripKeepsEffectsModifierIdsAndDiagnostics(@TempDir Path dir) {
+        ArmorEffectCompiler.Result compiled = compile(
+            "minecraft:iron_helmet+damage:fire_protection@3",
+            "*:*_boots+damage:fall_protection@2",
+            "minecraft:iron_boots+damage:frost_protection",
+            "minecraft:gold_boots+damage:fall_protection",
+            "minecraft:iron_helmet+damage:fire_protection@x"
+        );
+        // Attribute effects need the attribute registry, so the ids are added by hand
+        Set<UUID> modifierIds = Set.of(
+            new UUID(ArmorEffectType.AttributeArmorEffect.MODIFIER_ID_PREFIX, 1L),
+            new UUID(ArmorEffectType.AttributeArmorEffect.MODIFIER_ID_PREFIX, -42L)
+        );
+        List<ArmorEffectCompiler.Diagnostic> diagnostics = new ArrayList<>(compiled.getDiagnostics());
+        diagnostics.add(new ArmorEffectCompiler.Diagnostic(9, "minecraft:iron_helmet+potion:minecraft:gl\u00fchen", ArmorEffectCompiler.Severity.ERROR, "invalid effect id 'minecraft:gl\u00fchen'"));
+        ArmorEffectCompiler.Result result = new ArmorEffectCompiler.Result(compiled.getEffects(), compiled.getEffectCount(), 2,
+            modifierIds, diagnostics, false);
+        
+        Path file = dir.resolve("table.bin");
+        ArmorEffectTableCache.write(file, KEY, result, ITEM_IDS);
+        ArmorEffectCompiler.Result read = ArmorEffectTableCache.read(file, KEY, ITEM_IDS);
+        
+        assertNotNull(read);
+        assertEquals(result.getEffectCount(), read.getEffectCount());
+        assertEquals(2, read.getGatedCount());
+        assertEquals(modifierIds, read.getModifierIds());
+        assertEquals(result.getEffects().keySet(), read.getEffects().keySet());
+        for (Map.Entry<Item, ArmorEffectBundle> entry : result.getEffects().entrySet()) {
+            ArmorEffectType[] expected = entry.getValue().getEffects();
+            ArmorEffectType[] actual = read.getEffects().get(entry.getKey()).getEffects();
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].getCategory(), actual[i].getCategory());
+                assertEquals(expected[i].getEffectId(), actual[i].getEffectId());
+                assertEquals(expected[i].getLevel(), actual[i].getLevel());
+            }
+        }
+        
+        assertEquals(diagnostics.size(), read.getDiagnostics().size());
+        for (int i = 0; i < diagnostics.size(); i++) {
+            ArmorEffectCompiler.Diagnostic expected = diagnostics.get(i);
+            ArmorEffectCompiler.Diagnostic actual = read.getDiagnostics().get(i);
+            assertEquals(expected.getLine(), actual.getLine());
+            assertEquals(expected.getEntry(), actual.getEntry());
+            assertEquals(expected.getSeverity(), actual.getSeverity());
+            assertEquals(expected.getReason(), actual.getReason());
+        }
+    }
+    
+    @Test
+    void sharedEffectsStayShared(@TempDir Path dir) {
+        ArmorEffectCompiler.Result result = compile("*:*_boots+damage:fall_protection@2");
+        
+        Path file = dir.resolve("table.bin");
+        ArmorEffectTableCache.write(file, KEY, result, ITEM_IDS);
+        ArmorEffectCompiler.Result read = ArmorEffectTableCache.read(file, KEY, ITEM_IDS);
+        
+        assertNotNull(read);
+        ArmorEffectType iron = read.getEffects().get(item("minecraft:iron_boots")).getEffects()[0];
+        ArmorEffectType steel = read.getEffects().get(item("othermod:steel_boots")).getEffects()[0];
+        assertSame(iron, steel);
+    }
+    
+    @Test
+    void ignoresFilesWrittenForAnotherKey(@TempDir Path dir) {
+        Path file = dir.resolve("table.bin");
+        ArmorEffectTableCache.write(file, KEY, compile("minecraft:iron_helmet+damage:fire_protection"), ITEM_IDS);
+        
+        assertNull(ArmorEffectTableCache.read(file, KEY + 1, ITEM_IDS));
+        assertNull(ArmorEffectTableCache.read(dir.resolve("missing.bin"), KEY, ITEM_IDS));
+    }
+    
+    @Test
+    void ignoresDamagedFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("table.bin");
+        ArmorEffectTableCache.write(file, KEY, compile("minecraft:iron_helmet+damage:fire_protection"), ITEM_IDS);
+        
+        // Cut the file short after the header
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertNull(ArmorEffectTableCache.read(file, KEY, ITEM_IDS));
+    }
+    
+    @Test
+    void rewritingReplacesAFileThatWasRead(@TempDir Path dir) {
+        Path file = dir.resolve("table.bin");
+        ArmorEffectTableCache.write(file, KEY, compile("minecraft:iron_helmet+damage:fire_protection"), ITEM_IDS);
+        assertNotNull(ArmorEffectTableCache.read(file, KEY, ITEM_IDS));
+        
+        // The read must not keep the file open, or the move in write fails on Windows
+        ArmorEffectTableCache.write(file, KEY + 1, compile("minecraft:iron_boots+damage:fall_protection"), ITEM_IDS);
+        ArmorEffectCompiler.Result read = ArmorEffectTableCache.read(file, KEY + 1, ITEM_IDS);
+        assertNotNull(read);
+        assertNotNull(read.getEffects().get(item("minecraft:iron_boots")));
+    }
+}
\ No newline at end of file
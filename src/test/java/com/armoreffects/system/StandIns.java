@@ -0,0 +1,86 @@
+package com.armoreffects.system;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Lightweight stand-ins for game objects, so the tests run without bootstrapping Minecraft.
+ */
+final class StandIns {
+    private static final Unsafe UNSAFE;
+    
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private StandIns() {
+    }
+    
+    /**
+     * A few protection types, damage entries naming any other kind get a warning
+     */
+    static void loadProtectionTypes() {
+        DamageTypeMatcher.loadFromConfig(List.of(
+            "fire_protection=minecraft:in_fire,minecraft:on_fire,minecraft:lava",
+            "fall_protection=minecraft:fall"
+        ));
+    }
+    
+    /**
+     * An Item usable as an identity key. The real constructor registers an intrusive
+     * holder in the item registry, which needs the game bootstrapped.
+     */
+    static Item item() {
+        try {
+            return (Item) UNSAFE.allocateInstance(Item.class);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * A stand-in item for each id, in the given order
+     */
+    static Map<ResourceLocation, Item> items(String... ids) {
+        Map<ResourceLocation, Item> items = new LinkedHashMap<>();
+        for (String id : ids) {
+            items.put(new ResourceLocation(id), item());
+        }
+        return items;
+    }
+    
+    /**
+     * Item lookup over a fixed set of stand-in items, without tags
+     */
+    static ArmorEffectCompiler.ItemLookup lookup(Map<ResourceLocation, Item> items) {
+        return new ArmorEffectCompiler.ItemLookup() {
+            @Override
+            public Item get(ResourceLocation id) {
+                return items.get(id);
+            }
+            
+            @Override
+            public void forEach(BiConsumer<ResourceLocation, Item> action) {
+                items.forEach(action);
+            }
+            
+            @Override
+            public Iterable<Item> tag(ResourceLocation tagId) {
+                return null;
+            }
+        };
+    }
+}
\ No newline at end of file